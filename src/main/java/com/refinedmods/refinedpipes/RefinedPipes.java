@@ -27,6 +27,9 @@ public class RefinedPipes {
     public RefinedPipes() {
         DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> {
             FMLJavaModLoadingContext.get().getModEventBus().register(ClientSetup.class);
+
+            MinecraftForge.EVENT_BUS.addListener(ClientSetup::onLevelUnload);
+            MinecraftForge.EVENT_BUS.addListener(ClientSetup::onLoggedOut);
         });
 
         ModLoadingContext.get().registerConfig(ModConfig.Type.SERVER, SERVER_CONFIG.getSpec());
@@ -39,5 +42,7 @@ public class RefinedPipes {
         FMLJavaModLoadingContext.get().getModEventBus().addGenericListener(MenuType.class, CommonSetup::onRegisterContainerMenus);
 
         MinecraftForge.EVENT_BUS.addListener(CommonSetup::onLevelTick);
+        MinecraftForge.EVENT_BUS.addListener(CommonSetup::onServerAboutToStart);
+        MinecraftForge.EVENT_BUS.addListener(CommonSetup::onServerStopping);
     }
 }
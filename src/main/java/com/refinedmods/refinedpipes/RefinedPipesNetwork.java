@@ -3,15 +3,21 @@ package com.refinedmods.refinedpipes;
 import com.refinedmods.refinedpipes.message.*;
 import net.minecraft.core.BlockPos;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.minecraftforge.network.NetworkDirection;
 import net.minecraftforge.network.NetworkRegistry;
 import net.minecraftforge.network.PacketDistributor;
 import net.minecraftforge.network.simple.SimpleChannel;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 public class RefinedPipesNetwork {
-    private final String protocolVersion = Integer.toString(1);
+    private final String protocolVersion = Integer.toString(2);
     private final SimpleChannel handler = NetworkRegistry.ChannelBuilder
         .named(new ResourceLocation(RefinedPipes.ID, "main_channel"))
         .clientAcceptedVersions(protocolVersion::equals)
@@ -23,7 +29,7 @@ public class RefinedPipesNetwork {
         int id = 0;
 
         handler.registerMessage(id++, ItemTransportMessage.class, ItemTransportMessage::encode, ItemTransportMessage::decode, ItemTransportMessage::handle);
-        handler.registerMessage(id++, FluidPipeMessage.class, FluidPipeMessage::encode, FluidPipeMessage::decode, FluidPipeMessage::handle);
+        handler.registerMessage(id++, FluidNetworkMessage.class, FluidNetworkMessage::encode, FluidNetworkMessage::decode, FluidNetworkMessage::handle);
         handler.registerMessage(id++, ChangeRedstoneModeMessage.class, ChangeRedstoneModeMessage::encode, ChangeRedstoneModeMessage::decode, ChangeRedstoneModeMessage::handle);
         handler.registerMessage(id++, ChangeBlacklistWhitelistMessage.class, ChangeBlacklistWhitelistMessage::encode, ChangeBlacklistWhitelistMessage::decode, ChangeBlacklistWhitelistMessage::handle);
         handler.registerMessage(id++, ChangeRoutingModeMessage.class, ChangeRoutingModeMessage::encode, ChangeRoutingModeMessage::decode, ChangeRoutingModeMessage::handle);
@@ -42,6 +48,15 @@ public class RefinedPipesNetwork {
         )), message);
     }
 
+    public void sendToPlayersTracking(ServerLevel level, Collection<ChunkPos> chunks, Object message) {
+        Set<ServerPlayer> players = new HashSet<>();
+        for (ChunkPos chunk : chunks) {
+            players.addAll(level.getChunkSource().chunkMap.getPlayers(chunk, false));
+        }
+
+        players.forEach(player -> sendToClient(player, message));
+    }
+
     public void sendToServer(Object message) {
         handler.sendToServer(message);
     }
@@ -3,6 +3,7 @@ package com.refinedmods.refinedpipes.block;
 import com.refinedmods.refinedpipes.blockentity.PipeBlockEntity;
 import com.refinedmods.refinedpipes.item.AttachmentItem;
 import com.refinedmods.refinedpipes.network.NetworkManager;
+import com.refinedmods.refinedpipes.network.item.ItemNetwork;
 import com.refinedmods.refinedpipes.network.pipe.Pipe;
 import com.refinedmods.refinedpipes.network.pipe.attachment.Attachment;
 import com.refinedmods.refinedpipes.network.pipe.attachment.AttachmentFactory;
@@ -21,6 +22,7 @@ import net.minecraft.world.item.context.BlockPlaceContext;
 import net.minecraft.world.level.BlockGetter;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.level.LevelReader;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
@@ -83,6 +85,23 @@ public abstract class PipeBlock extends Block {
 
             if (pipe != null && pipe.getNetwork() != null) {
                 pipe.getNetwork().scanGraph(level, pos);
+                pipe.getAttachmentManager().getAttachments().forEach(Attachment::onNeighborChanged);
+            }
+        }
+    }
+
+    @Override
+    public void onNeighborChange(BlockState state, LevelReader level, BlockPos pos, BlockPos neighbor) {
+        // Called when the contents of an adjacent inventory change.
+        if (level instanceof Level && !((Level) level).isClientSide) {
+            Pipe pipe = NetworkManager.get((Level) level).getPipe(pos);
+
+            if (pipe != null && pipe.getNetwork() instanceof ItemNetwork) {
+                ((ItemNetwork) pipe.getNetwork()).onNeighborContentsChanged(neighbor);
+            }
+
+            if (pipe != null) {
+                pipe.getAttachmentManager().getAttachments().forEach(Attachment::onNeighborChanged);
             }
         }
     }
@@ -119,7 +138,7 @@ public abstract class PipeBlock extends Block {
                 }
 
                 pipe.getAttachmentManager().setAttachmentAndScanGraph(dir, type.create(pipe, dir));
-                NetworkManager.get(level).setDirty();
+                NetworkManager.get(level).markDirty(pos);
 
                 pipe.sendBlockUpdate();
                 level.setBlockAndUpdate(pos, getState(level.getBlockState(pos), level, pos));
@@ -141,7 +160,7 @@ public abstract class PipeBlock extends Block {
                 Attachment attachment = pipe.getAttachmentManager().getAttachment(dir);
 
                 pipe.getAttachmentManager().removeAttachmentAndScanGraph(dir);
-                NetworkManager.get(level).setDirty();
+                NetworkManager.get(level).markDirty(pos);
 
                 pipe.sendBlockUpdate();
                 level.setBlockAndUpdate(pos, getState(level.getBlockState(pos), level, pos));
@@ -7,17 +7,22 @@ import com.refinedmods.refinedpipes.network.pipe.fluid.FluidPipe;
 import com.refinedmods.refinedpipes.network.pipe.fluid.FluidPipeType;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraftforge.fluids.FluidStack;
 
 import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
 
 public class FluidPipeBlockEntity extends PipeBlockEntity {
+    // Client side state of the fluid networks, shared by all pipes of a network.
+    private static final Map<ResourceKey<Level>, Map<Integer, NetworkState>> NETWORK_STATES = new HashMap<>();
+
     private final FluidPipeType type;
 
-    private FluidStack fluid = FluidStack.EMPTY;
-    private float fullness = 0;
+    private int networkId = -1;
     private float renderFullness = 0;
 
     public FluidPipeBlockEntity(BlockPos pos, BlockState state, FluidPipeType type) {
@@ -26,15 +31,35 @@ public class FluidPipeBlockEntity extends PipeBlockEntity {
         this.type = type;
     }
 
-    public FluidStack getFluid() {
-        return fluid;
+    public static void setNetworkState(ResourceKey<Level> dimension, int networkId, FluidStack fluid, float fullness) {
+        NETWORK_STATES.computeIfAbsent(dimension, d -> new HashMap<>()).put(networkId, new NetworkState(fluid, fullness));
+    }
+
+    public static void clearNetworkStates(ResourceKey<Level> dimension) {
+        NETWORK_STATES.remove(dimension);
+    }
+
+    public static void clearNetworkStates() {
+        NETWORK_STATES.clear();
     }
 
-    public void setFluid(FluidStack fluid) {
-        this.fluid = fluid;
+    @Nullable
+    private NetworkState getNetworkState() {
+        Map<Integer, NetworkState> states = NETWORK_STATES.get(level.dimension());
+
+        return states == null ? null : states.get(networkId);
+    }
+
+    public FluidStack getFluid() {
+        NetworkState state = getNetworkState();
+
+        return state == null ? FluidStack.EMPTY : state.fluid;
     }
 
     public float updateAndGetRenderFullness(float partialTicks) {
+        NetworkState state = getNetworkState();
+        float fullness = state == null ? 0 : state.fullness;
+
         float step = partialTicks * 0.05F;
 
         if (renderFullness > fullness) {
@@ -58,8 +83,11 @@ public class FluidPipeBlockEntity extends PipeBlockEntity {
     public CompoundTag writeUpdate(CompoundTag tag) {
         Pipe pipe = NetworkManager.get(level).getPipe(worldPosition);
         if (pipe instanceof FluidPipe && pipe.getNetwork() != null) {
-            tag.put("fluid", ((FluidNetwork) pipe.getNetwork()).getFluidTank().getFluid().writeToNBT(new CompoundTag()));
-            tag.putFloat("fullness", ((FluidPipe) pipe).getFullness());
+            FluidNetwork network = (FluidNetwork) pipe.getNetwork();
+
+            tag.putInt("fluidNetwork", network.getId());
+            tag.put("fluid", network.getFluidTank().getFluid().writeToNBT(new CompoundTag()));
+            tag.putFloat("fullness", network.getFullness());
         }
 
         return super.writeUpdate(tag);
@@ -67,29 +95,32 @@ public class FluidPipeBlockEntity extends PipeBlockEntity {
 
     @Override
     public void readUpdate(@Nullable CompoundTag tag) {
-        if (tag != null && tag.contains("fluid")) {
-            fluid = FluidStack.loadFluidStackFromNBT(tag.getCompound("fluid"));
-        } else {
-            fluid = FluidStack.EMPTY;
-        }
+        if (tag != null && tag.contains("fluidNetwork")) {
+            networkId = tag.getInt("fluidNetwork");
 
-        if (tag != null && tag.contains("fullness")) {
-            fullness = tag.getFloat("fullness");
+            float fullness = tag.getFloat("fullness");
+            setNetworkState(level.dimension(), networkId, FluidStack.loadFluidStackFromNBT(tag.getCompound("fluid")), fullness);
             renderFullness = fullness;
         } else {
-            fullness = 0;
+            networkId = -1;
             renderFullness = 0;
         }
 
         super.readUpdate(tag);
     }
 
-    public void setFullness(float fullness) {
-        this.fullness = fullness;
-    }
-
     @Override
     protected Pipe createPipe(Level level, BlockPos pos) {
         return new FluidPipe(level, pos, type);
     }
+
+    private static class NetworkState {
+        private final FluidStack fluid;
+        private final float fullness;
+
+        private NetworkState(FluidStack fluid, float fullness) {
+            this.fluid = fluid;
+            this.fullness = fullness;
+        }
+    }
 }
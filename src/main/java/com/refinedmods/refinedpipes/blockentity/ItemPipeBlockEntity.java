@@ -39,6 +39,8 @@ public class ItemPipeBlockEntity extends PipeBlockEntity {
         super.spawnDrops(pipe);
 
         for (ItemTransport transport : ((ItemPipe) pipe).getTransports()) {
+            transport.releaseReservation();
+
             Containers.dropItemStack(level, worldPosition.getX(), worldPosition.getY(), worldPosition.getZ(), transport.getValue());
         }
     }
@@ -1,5 +1,6 @@
 package com.refinedmods.refinedpipes.blockentity;
 
+import com.refinedmods.refinedpipes.RefinedPipes;
 import com.refinedmods.refinedpipes.network.NetworkManager;
 import com.refinedmods.refinedpipes.network.pipe.Pipe;
 import com.refinedmods.refinedpipes.network.pipe.attachment.Attachment;
@@ -23,6 +24,8 @@ import javax.annotation.Nullable;
 public abstract class PipeBlockEntity extends BaseBlockEntity {
     public static final ModelProperty<ResourceLocation[]> ATTACHMENTS_PROPERTY = new ModelProperty<>();
     private final AttachmentManager clientAttachmentManager = new ClientAttachmentManager();
+    @Nullable
+    private CompoundTag pipeTag;
 
     protected PipeBlockEntity(BlockEntityType<?> type, BlockPos pos, BlockState state) {
         super(type, pos, state);
@@ -49,12 +52,53 @@ public abstract class PipeBlockEntity extends BaseBlockEntity {
         if (!level.isClientSide) {
             NetworkManager mgr = NetworkManager.get(level);
 
+            if (pipeTag != null && (mgr.getPipe(worldPosition) == null || RefinedPipes.SERVER_CONFIG.isStorePipesInChunks())) {
+                Pipe pipe = NetworkManager.readPipe(level, pipeTag);
+                if (pipe != null) {
+                    mgr.loadPipe(pipe, mgr.readNetworkId(pipeTag, "network"));
+                }
+            }
+
+            pipeTag = null;
+
             if (mgr.getPipe(worldPosition) == null) {
                 mgr.addPipe(createPipe(level, worldPosition));
             }
         }
     }
 
+    @Override
+    public void load(CompoundTag tag) {
+        super.load(tag);
+
+        pipeTag = tag.contains("pipe") ? tag.getCompound("pipe") : null;
+    }
+
+    @Override
+    protected void saveAdditional(CompoundTag tag) {
+        super.saveAdditional(tag);
+
+        if (level == null || level.isClientSide || !RefinedPipes.SERVER_CONFIG.isStorePipesInChunks()) {
+            return;
+        }
+
+        Pipe pipe = NetworkManager.get(level).getPipe(worldPosition);
+        if (pipe != null) {
+            tag.put("pipe", writePipeTag(pipe));
+        } else if (pipeTag != null) {
+            tag.put("pipe", pipeTag);
+        }
+    }
+
+    private CompoundTag writePipeTag(Pipe pipe) {
+        CompoundTag tag = NetworkManager.writePipe(pipe);
+        if (pipe.getNetwork() != null) {
+            tag.putInt("network", pipe.getNetwork().getId());
+        }
+
+        return tag;
+    }
+
     // TODO: remove when https://github.com/MinecraftForge/MinecraftForge/pull/8303/files is merged
     private boolean unloaded;
 
@@ -62,6 +106,18 @@ public abstract class PipeBlockEntity extends BaseBlockEntity {
     public void onChunkUnloaded() {
         super.onChunkUnloaded();
         unloaded = true;
+
+        if (!level.isClientSide && RefinedPipes.SERVER_CONFIG.isStorePipesInChunks()) {
+            NetworkManager mgr = NetworkManager.get(level);
+
+            Pipe pipe = mgr.getPipe(worldPosition);
+            if (pipe != null) {
+                // The chunk is saved after this, so keep the pipe data around for it.
+                pipeTag = writePipeTag(pipe);
+
+                mgr.unloadPipe(worldPosition);
+            }
+        }
     }
 
     @Override
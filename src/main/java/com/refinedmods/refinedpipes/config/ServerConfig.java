@@ -7,6 +7,16 @@ public class ServerConfig {
     private final ForgeConfigSpec.Builder builder = new ForgeConfigSpec.Builder();
     private final ForgeConfigSpec spec;
 
+    private final ForgeConfigSpec.BooleanValue storePipesInChunks;
+    private final ForgeConfigSpec.IntValue networkScanBudget;
+    private final ForgeConfigSpec.IntValue maxItemBounces;
+    private final ForgeConfigSpec.IntValue noDestinationCacheTicks;
+    private final ForgeConfigSpec.IntValue extractorSlotsPerPoll;
+    private final ForgeConfigSpec.IntValue extractorMaxIdleTickInterval;
+    private final ForgeConfigSpec.IntValue fluidNetworkTickInterval;
+    private final ForgeConfigSpec.IntValue energyNetworkTickInterval;
+    private final ForgeConfigSpec.IntValue energyMaxReceiverBackoffTicks;
+
     private final ItemPipe basicItemPipe;
     private final ItemPipe improvedItemPipe;
     private final ItemPipe advancedItemPipe;
@@ -32,8 +42,15 @@ public class ServerConfig {
     public ServerConfig() {
         builder.push("pipe");
         {
+            storePipesInChunks = builder.comment("Whether pipe data is stored with the chunk it is in. When enabled, pipes in unloaded chunks are not kept in memory.").define("storeInChunks", false);
+            networkScanBudget = builder.comment("The maximum amount of pipes scanned per tick while networks are initialized after the world is loaded. Networks close to players are initialized first, and at least one network is initialized per tick.").defineInRange("networkScanBudget", 4096, 1, Integer.MAX_VALUE);
+
             builder.push("item");
             {
+                maxItemBounces = builder.comment("The maximum amount of times an item that couldn't be inserted is routed back into the network before it is dropped.").defineInRange("maxBounces", 3, 0, Integer.MAX_VALUE);
+                noDestinationCacheTicks = builder.comment("The amount of ticks extractors skip an item that couldn't be inserted into any destination, unless the destinations change earlier. 0 to disable.").defineInRange("noDestinationCacheTicks", 20, 0, Integer.MAX_VALUE);
+                extractorSlotsPerPoll = builder.comment("The maximum amount of source inventory slots an extractor checks per extraction. The next extraction continues where the last one left off.").defineInRange("extractorSlotsPerPoll", 256, 1, Integer.MAX_VALUE);
+
                 basicItemPipe = new ItemPipe("basic", 30);
                 improvedItemPipe = new ItemPipe("improved", 20);
                 advancedItemPipe = new ItemPipe("advanced", 10);
@@ -42,6 +59,8 @@ public class ServerConfig {
 
             builder.push("fluid");
             {
+                fluidNetworkTickInterval = builder.comment("The interval in ticks between fluid distributions of a fluid network. Each distribution transfers the transfer rate times this interval, so higher values use less CPU at the same throughput. Networks that can't hold that much use a shorter interval.").defineInRange("networkTickInterval", 1, 1, 20);
+
                 basicFluidPipe = new FluidPipe("basic", FluidAttributes.BUCKET_VOLUME, 100);
                 improvedFluidPipe = new FluidPipe("improved", FluidAttributes.BUCKET_VOLUME * 4, 400);
                 advancedFluidPipe = new FluidPipe("advanced", FluidAttributes.BUCKET_VOLUME * 8, 800);
@@ -52,6 +71,9 @@ public class ServerConfig {
 
             builder.push("energy");
             {
+                energyNetworkTickInterval = builder.comment("The interval in ticks between energy distributions of an energy network. Each distribution transfers the transfer rate times this interval, so higher values use less CPU at the same throughput. Networks that can't hold that much use a shorter interval.").defineInRange("networkTickInterval", 1, 1, 20);
+                energyMaxReceiverBackoffTicks = builder.comment("The maximum amount of ticks an energy network skips a receiver that didn't accept any energy. Receivers are skipped for longer each time they refuse energy, until they accept energy again or the network changes. 0 to disable.").defineInRange("maxReceiverBackoffTicks", 20, 0, Integer.MAX_VALUE);
+
                 basicEnergyPipe = new EnergyPipe("basic", 1000, 1000);
                 improvedEnergyPipe = new EnergyPipe("improved", 4000, 4000);
                 advancedEnergyPipe = new EnergyPipe("advanced", 8000, 8000);
@@ -64,9 +86,11 @@ public class ServerConfig {
             {
                 builder.push("extractor");
                 {
+                    extractorMaxIdleTickInterval = builder.comment("The maximum interval in ticks between extractions of an extractor that didn't extract anything recently. Idle extractors slow down up to this interval and return to their normal interval after extracting again, or when their neighbors or destinations change. 0 to disable.").defineInRange("maxIdleTickInterval", 20 * 5, 0, Integer.MAX_VALUE);
+
                     basicExtractorAttachment = new ExtractorAttachment(
                         "basic",
-                        20 * 3, 8, // item tick interval, items to extract
+                        20 * 3, 8, 1, // item tick interval, items to extract, stacks to extract
                         0, 100, // fluid tick interval, fluids to extract
                         0, // filter slots
                         false, // redstone mode
@@ -76,7 +100,7 @@ public class ServerConfig {
                     );
                     improvedExtractorAttachment = new ExtractorAttachment(
                         "improved",
-                        20 * 2, 16, // item tick interval, items to extract
+                        20 * 2, 16, 1, // item tick interval, items to extract, stacks to extract
                         0, 400, // fluid tick interval, fluids to extract
                         4, // filter slots
                         true, // redstone mode
@@ -86,7 +110,7 @@ public class ServerConfig {
                     );
                     advancedExtractorAttachment = new ExtractorAttachment(
                         "advanced",
-                        20, 32, // item tick interval, items to extract
+                        20, 32, 1, // item tick interval, items to extract, stacks to extract
                         0, 800, // fluid tick interval, fluids to extract
                         8, // filter slots
                         true, // redstone mode
@@ -96,7 +120,7 @@ public class ServerConfig {
                     );
                     eliteExtractorAttachment = new ExtractorAttachment(
                         "elite",
-                        10, 64, // item tick interval, items to extract
+                        10, 64, 1, // item tick interval, items to extract, stacks to extract
                         0, 1600, // fluid tick interval, fluids to extract
                         12, // filter slots
                         true, // redstone mode
@@ -106,7 +130,7 @@ public class ServerConfig {
                     );
                     ultimateExtractorAttachment = new ExtractorAttachment(
                         "ultimate",
-                        10, 64, // item tick interval, items to extract
+                        10, 64, 1, // item tick interval, items to extract, stacks to extract
                         0, 3200, // fluid tick interval, fluids to extract
                         15, // filter slots
                         true, // redstone mode
@@ -128,6 +152,42 @@ public class ServerConfig {
         return spec;
     }
 
+    public boolean isStorePipesInChunks() {
+        return storePipesInChunks.get();
+    }
+
+    public int getNetworkScanBudget() {
+        return networkScanBudget.get();
+    }
+
+    public int getMaxItemBounces() {
+        return maxItemBounces.get();
+    }
+
+    public int getNoDestinationCacheTicks() {
+        return noDestinationCacheTicks.get();
+    }
+
+    public int getExtractorSlotsPerPoll() {
+        return extractorSlotsPerPoll.get();
+    }
+
+    public int getExtractorMaxIdleTickInterval() {
+        return extractorMaxIdleTickInterval.get();
+    }
+
+    public int getFluidNetworkTickInterval() {
+        return fluidNetworkTickInterval.get();
+    }
+
+    public int getEnergyNetworkTickInterval() {
+        return energyNetworkTickInterval.get();
+    }
+
+    public int getEnergyMaxReceiverBackoffTicks() {
+        return energyMaxReceiverBackoffTicks.get();
+    }
+
     public ItemPipe getBasicItemPipe() {
         return basicItemPipe;
     }
@@ -263,6 +323,7 @@ public class ServerConfig {
     public class ExtractorAttachment {
         private final ForgeConfigSpec.IntValue itemTickInterval;
         private final ForgeConfigSpec.IntValue itemsToExtract;
+        private final ForgeConfigSpec.IntValue stacksToExtract;
         private final ForgeConfigSpec.IntValue fluidTickInterval;
         private final ForgeConfigSpec.IntValue fluidsToExtract;
         private final ForgeConfigSpec.IntValue filterSlots;
@@ -275,6 +336,7 @@ public class ServerConfig {
             String type,
             int defaultItemTickInterval,
             int defaultItemsToExtract,
+            int defaultStacksToExtract,
             int defaultFluidTickInterval,
             int defaultFluidsToExtract,
             int defaultFilterSlots,
@@ -286,6 +348,7 @@ public class ServerConfig {
 
             itemTickInterval = builder.comment("The interval between item extractions in ticks. Lower is faster.").defineInRange("itemTickInterval", defaultItemTickInterval, 0, Integer.MAX_VALUE);
             itemsToExtract = builder.comment("The amount of items to extract per extraction.").defineInRange("itemsToExtract", defaultItemsToExtract, 0, 64);
+            stacksToExtract = builder.comment("The amount of stacks to extract per extraction, from one or more slots and to one or more destinations. Each stack has at most the amount of items to extract.").defineInRange("stacksToExtract", defaultStacksToExtract, 1, 64);
             fluidTickInterval = builder.comment("The interval between fluid extractions in ticks. Lower is faster.").defineInRange("fluidTickInterval", defaultFluidTickInterval, 0, Integer.MAX_VALUE);
             fluidsToExtract = builder.comment("The amount of fluids in mB to extract per extraction.").defineInRange("fluidsToExtract", defaultFluidsToExtract, 0, Integer.MAX_VALUE);
             filterSlots = builder.comment("The amount of filter slots allowed.").defineInRange("filterSlots", defaultFilterSlots, 0, com.refinedmods.refinedpipes.network.pipe.attachment.extractor.ExtractorAttachment.MAX_FILTER_SLOTS);
@@ -305,6 +368,10 @@ public class ServerConfig {
             return itemsToExtract.get();
         }
 
+        public int getStacksToExtract() {
+            return stacksToExtract.get();
+        }
+
         public int getFluidTickInterval() {
             return fluidTickInterval.get();
         }
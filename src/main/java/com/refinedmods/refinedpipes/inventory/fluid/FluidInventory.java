@@ -74,6 +74,12 @@ public class FluidInventory {
                 fluids[i] = FluidStack.loadFluidStackFromNBT(tag.getCompound(key));
             }
         }
+
+        onLoad();
+    }
+
+    protected void onLoad() {
+
     }
 
     protected void onContentsChanged() {
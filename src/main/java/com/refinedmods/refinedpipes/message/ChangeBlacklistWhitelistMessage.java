@@ -49,7 +49,7 @@ public class ChangeBlacklistWhitelistMessage {
                 if (attachment instanceof ExtractorAttachment) {
                     ((ExtractorAttachment) attachment).setBlacklistWhitelist(message.blacklistWhitelist);
 
-                    NetworkManager.get(blockEntity.getLevel()).setDirty();
+                    NetworkManager.get(blockEntity.getLevel()).markDirty(message.pos);
                 }
             }
         });
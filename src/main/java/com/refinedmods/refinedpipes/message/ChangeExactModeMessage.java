@@ -48,7 +48,7 @@ public class ChangeExactModeMessage {
                 if (attachment instanceof ExtractorAttachment) {
                     ((ExtractorAttachment) attachment).setExactMode(message.exactMode);
 
-                    NetworkManager.get(blockEntity.getLevel()).setDirty();
+                    NetworkManager.get(blockEntity.getLevel()).markDirty(message.pos);
                 }
             }
         });
@@ -49,7 +49,7 @@ public class ChangeRedstoneModeMessage {
                 if (attachment instanceof ExtractorAttachment) {
                     ((ExtractorAttachment) attachment).setRedstoneMode(message.redstoneMode);
 
-                    NetworkManager.get(blockEntity.getLevel()).setDirty();
+                    NetworkManager.get(blockEntity.getLevel()).markDirty(message.pos);
                 }
             }
         });
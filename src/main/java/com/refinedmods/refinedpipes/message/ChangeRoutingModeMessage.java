@@ -49,7 +49,7 @@ public class ChangeRoutingModeMessage {
                 if (attachment instanceof ExtractorAttachment) {
                     ((ExtractorAttachment) attachment).setRoutingMode(message.routingMode);
 
-                    NetworkManager.get(blockEntity.getLevel()).setDirty();
+                    NetworkManager.get(blockEntity.getLevel()).markDirty(message.pos);
                 }
             }
         });
@@ -48,7 +48,7 @@ public class ChangeStackSizeMessage {
                 if (attachment instanceof ExtractorAttachment) {
                     ((ExtractorAttachment) attachment).setStackSize(message.stackSize);
 
-                    NetworkManager.get(blockEntity.getLevel()).setDirty();
+                    NetworkManager.get(blockEntity.getLevel()).markDirty(message.pos);
                 }
             }
         });
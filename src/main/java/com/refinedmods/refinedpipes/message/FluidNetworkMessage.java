@@ -0,0 +1,47 @@
+package com.refinedmods.refinedpipes.message;
+
+import com.refinedmods.refinedpipes.blockentity.FluidPipeBlockEntity;
+import net.minecraft.core.Registry;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+public class FluidNetworkMessage {
+    private final ResourceKey<Level> dimension;
+    private final int networkId;
+    private final FluidStack fluid;
+    private final float fullness;
+
+    public FluidNetworkMessage(ResourceKey<Level> dimension, int networkId, FluidStack fluid, float fullness) {
+        this.dimension = dimension;
+        this.networkId = networkId;
+        this.fluid = fluid;
+        this.fullness = fullness;
+    }
+
+    public static void encode(FluidNetworkMessage message, FriendlyByteBuf buf) {
+        buf.writeResourceLocation(message.dimension.location());
+        buf.writeInt(message.networkId);
+        buf.writeFluidStack(message.fluid);
+        buf.writeFloat(message.fullness);
+    }
+
+    public static FluidNetworkMessage decode(FriendlyByteBuf buf) {
+        ResourceKey<Level> dimension = ResourceKey.create(Registry.DIMENSION_REGISTRY, buf.readResourceLocation());
+        int networkId = buf.readInt();
+        FluidStack fluid = buf.readFluidStack();
+        float fullness = buf.readFloat();
+
+        return new FluidNetworkMessage(dimension, networkId, fluid, fullness);
+    }
+
+    public static void handle(FluidNetworkMessage message, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> FluidPipeBlockEntity.setNetworkState(message.dimension, message.networkId, message.fluid, message.fullness));
+
+        ctx.get().setPacketHandled(true);
+    }
+}
@@ -0,0 +1,82 @@
+package com.refinedmods.refinedpipes.network;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.world.level.saveddata.SavedData;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+public abstract class AsyncSavedData extends SavedData {
+    private static final Logger LOGGER = LogManager.getLogger(AsyncSavedData.class);
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Refined Pipes saving");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static volatile boolean synchronous;
+
+    public static void setSynchronous(boolean synchronous) {
+        AsyncSavedData.synchronous = synchronous;
+
+        if (synchronous) {
+            flush();
+        }
+    }
+
+    private static void flush() {
+        try {
+            EXECUTOR.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error("Could not flush pending saves", e);
+        }
+    }
+
+    // Called on the server thread. Everything that can change after this returns must be captured
+    // before returning, the supplier is then called on the saving thread.
+    protected abstract Supplier<CompoundTag> createSnapshot();
+
+    @Override
+    public CompoundTag save(CompoundTag tag) {
+        return tag.merge(createSnapshot().get());
+    }
+
+    @Override
+    public void save(File file) {
+        if (!isDirty()) {
+            return;
+        }
+
+        Supplier<CompoundTag> snapshot = createSnapshot();
+
+        setDirty(false);
+
+        Runnable write = () -> {
+            CompoundTag tag = new CompoundTag();
+            tag.put("data", snapshot.get());
+            tag.putInt("DataVersion", SharedConstants.getCurrentVersion().getWorldVersion());
+
+            try {
+                NbtIo.writeCompressed(tag, file);
+            } catch (IOException e) {
+                LOGGER.error("Could not save data {}", this, e);
+            }
+        };
+
+        if (synchronous) {
+            write.run();
+        } else {
+            EXECUTOR.execute(write);
+        }
+    }
+}
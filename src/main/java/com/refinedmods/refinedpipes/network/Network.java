@@ -9,17 +9,23 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.Level;
+import net.minecraftforge.common.util.LazyOptional;
 
+import java.lang.ref.WeakReference;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 public abstract class Network {
     protected final NetworkGraph graph = new NetworkGraph(this);
-    private final String id;
+    private final Set<LazyOptional<?>> listenedCapabilities = Collections.newSetFromMap(new WeakHashMap<>());
+    private final int id;
     private BlockPos originPos;
     private boolean didDoInitialScan;
+    private int topologyEpoch;
 
-    public Network(BlockPos originPos, String id) {
+    public Network(BlockPos originPos, int id) {
         this.id = id;
         this.originPos = originPos;
     }
@@ -28,20 +34,67 @@ public abstract class Network {
         this.originPos = originPos;
     }
 
-    public String getId() {
+    public BlockPos getOriginPos() {
+        return originPos;
+    }
+
+    // Networks of the same type don't all do their work on the same tick.
+    protected boolean isDueForTick(Level level, int interval) {
+        return (level.getGameTime() + id) % interval == 0;
+    }
+
+    // Moving the transfer rate times the interval at once only keeps the throughput if the network can buffer that much in between.
+    protected static int getTickInterval(int interval, int capacity, int transferRate) {
+        if (transferRate <= 0) {
+            return interval;
+        }
+
+        return Math.max(1, Math.min(interval, capacity / transferRate));
+    }
+
+    public int getId() {
         return id;
     }
 
+    public boolean didDoInitialScan() {
+        return didDoInitialScan;
+    }
+
     public NetworkGraphScannerResult scanGraph(Level level, BlockPos pos) {
-        return graph.scan(level, pos);
+        NetworkGraphScannerResult result = graph.scan(level, pos);
+        topologyEpoch++;
+        didDoInitialScan = true;
+        return result;
+    }
+
+    public int getTopologyEpoch() {
+        return topologyEpoch;
     }
 
     public List<Destination> getDestinations(DestinationType type) {
         return graph.getDestinations(type);
     }
 
+    // Destinations are rescanned often, only listen once per capability.
+    public void listenForInvalidation(LazyOptional<?> capability) {
+        if (capability.isPresent() && listenedCapabilities.add(capability)) {
+            // The capability usually outlives this network, the listener shouldn't keep the network alive.
+            WeakReference<Network> network = new WeakReference<>(this);
+
+            capability.addListener(c -> {
+                Network listeningNetwork = network.get();
+                if (listeningNetwork != null) {
+                    listeningNetwork.onDestinationInvalidated();
+                }
+            });
+        }
+    }
+
+    protected void onDestinationInvalidated() {
+    }
+
     public CompoundTag writeToNbt(CompoundTag tag) {
-        tag.putString("id", id);
+        tag.putInt("id", id);
         tag.putLong("origin", originPos.asLong());
 
         return tag;
@@ -49,14 +102,16 @@ public abstract class Network {
 
     public void update(Level level) {
         if (!didDoInitialScan) {
-            didDoInitialScan = true;
-
-            scanGraph(level, originPos);
+            return;
         }
 
         graph.getPipes().forEach(Pipe::update);
     }
 
+    public Set<Pipe> getPipes() {
+        return graph.getPipes();
+    }
+
     public Pipe getPipe(BlockPos pos) {
         return graph.getPipes().stream().filter(p -> p.getPos().equals(pos)).findFirst().orElse(null);
     }
@@ -70,11 +125,11 @@ public abstract class Network {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Network network = (Network) o;
-        return id.equals(network.id);
+        return id == network.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return id;
     }
 }
@@ -4,7 +4,7 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 
 public interface NetworkFactory {
-    Network create(BlockPos pos);
+    Network create(BlockPos pos, int id);
 
     Network create(CompoundTag tag);
 }
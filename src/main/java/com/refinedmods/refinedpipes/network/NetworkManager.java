@@ -6,27 +6,40 @@ import com.refinedmods.refinedpipes.network.pipe.Pipe;
 import com.refinedmods.refinedpipes.network.pipe.PipeFactory;
 import com.refinedmods.refinedpipes.network.pipe.PipeRegistry;
 import com.refinedmods.refinedpipes.network.pipe.item.ItemPipe;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.LongArrayTag;
 import net.minecraft.nbt.Tag;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.level.saveddata.SavedData;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
-public class NetworkManager extends SavedData {
+public class NetworkManager extends AsyncSavedData {
     private static final String NAME = RefinedPipes.ID + "_networks";
     private static final Logger LOGGER = LogManager.getLogger(NetworkManager.class);
     private final Level level;
-    private final Map<String, Network> networks = new HashMap<>();
+    private final List<Network> networks = new ArrayList<>();
+    private final Int2ObjectMap<Network> networksById = new Int2ObjectOpenHashMap<>();
+    private int nextNetworkId;
+    private final Map<String, Integer> legacyNetworkIds = new HashMap<>();
     private final Map<BlockPos, Pipe> pipes = new HashMap<>();
+    private final Map<Long, PipeRegion> regions = new HashMap<>();
+    private final List<Pipe> loadedPipes = new ArrayList<>();
+    private final Map<Pipe, Integer> loadedPipeNetworkIds = new HashMap<>();
+    private final List<Pipe> unloadedPipes = new ArrayList<>();
+    private final List<Network> networksToScan = new ArrayList<>();
 
     public NetworkManager(Level level) {
         this.level = level;
@@ -44,24 +57,120 @@ public class NetworkManager extends SavedData {
         }, () -> new NetworkManager(level), NAME);
     }
 
-    public void addNetwork(Network network) {
-        if (networks.containsKey(network.getId())) {
-            throw new RuntimeException("Duplicate network " + network.getId());
+    private PipeRegion getRegion(BlockPos pos) {
+        long key = PipeRegion.getKey(pos);
+
+        PipeRegion region = regions.get(key);
+        if (region == null) {
+            region = loadRegion(key);
+            regions.put(key, region);
+
+            setDirty();
         }
 
-        networks.put(network.getId(), network);
+        return region;
+    }
+
+    private void removeFromRegion(BlockPos pos) {
+        long key = PipeRegion.getKey(pos);
+
+        PipeRegion region = regions.get(key);
+        if (region != null) {
+            region.removePipe(pos);
+
+            // Empty regions are no longer listed, so they aren't loaded again after a restart.
+            if (region.getPipes().isEmpty()) {
+                regions.remove(key);
+                setDirty();
+            }
+        }
+    }
+
+    private PipeRegion loadRegion(long key) {
+        return ((ServerLevel) level).getDataStorage().computeIfAbsent((tag) -> {
+            PipeRegion region = new PipeRegion(level);
+            region.load(tag);
+            return region;
+        }, () -> new PipeRegion(level), PipeRegion.getName(NAME, key));
+    }
+
+    public void markDirty(BlockPos pos) {
+        if (RefinedPipes.SERVER_CONFIG.isStorePipesInChunks()) {
+            level.blockEntityChanged(pos);
+        } else {
+            getRegion(pos).setDirty();
+        }
+    }
+
+    @Nullable
+    public static Pipe readPipe(Level level, CompoundTag tag) {
+        // @BC
+        ResourceLocation factoryId = tag.contains("id") ? new ResourceLocation(tag.getString("id")) : ItemPipe.ID;
+
+        PipeFactory factory = PipeRegistry.INSTANCE.getFactory(factoryId);
+        if (factory == null) {
+            LOGGER.warn("Pipe {} no longer exists", factoryId.toString());
+            return null;
+        }
+
+        return factory.createFromNbt(level, tag);
+    }
+
+    public static CompoundTag writePipe(Pipe pipe) {
+        CompoundTag tag = new CompoundTag();
+        tag.putString("id", pipe.getId().toString());
+        return pipe.writeToNbt(tag);
+    }
+
+    public static Supplier<CompoundTag> createPipeSnapshot(Pipe pipe) {
+        CompoundTag tag = new CompoundTag();
+        tag.putString("id", pipe.getId().toString());
+        return pipe.createSnapshot(tag);
+    }
+
+    public int createNetworkId() {
+        setDirty();
+
+        // Ids are never reused, pipes stored in unloaded chunks and clients may still refer to removed networks.
+        return nextNetworkId++;
+    }
+
+    @Nullable
+    public Network getNetwork(int id) {
+        return networksById.get(id);
+    }
+
+    public void addNetwork(Network network) {
+        putNetwork(network);
 
         LOGGER.debug("Network {} created", network.getId());
 
         setDirty();
     }
 
-    public void removeNetwork(String id) {
-        if (!networks.containsKey(id)) {
+    private void putNetwork(Network network) {
+        if (getNetwork(network.getId()) != null) {
+            throw new RuntimeException("Duplicate network " + network.getId());
+        }
+
+        if (network.getId() < 0) {
+            throw new RuntimeException("Invalid network id " + network.getId());
+        }
+
+        networksById.put(network.getId(), network);
+        networks.add(network);
+    }
+
+    public void removeNetwork(int id) {
+        Network network = getNetwork(id);
+        if (network == null) {
             throw new RuntimeException("Network " + id + " not found");
         }
 
-        networks.remove(id);
+        networksById.remove(id);
+        networks.remove(network);
+
+        legacyNetworkIds.values().remove(id);
 
         LOGGER.debug("Network {} removed", id);
 
@@ -69,7 +178,7 @@ public class NetworkManager extends SavedData {
     }
 
     private void formNetworkAt(Level level, BlockPos pos, ResourceLocation type) {
-        Network network = NetworkRegistry.INSTANCE.getFactory(type).create(pos);
+        Network network = NetworkRegistry.INSTANCE.getFactory(type).create(pos, createNetworkId());
 
         addNetwork(network);
 
@@ -120,12 +229,15 @@ public class NetworkManager extends SavedData {
             throw new RuntimeException("Pipe at " + pipe.getPos() + " already exists");
         }
 
+        scanNetworksOf(findAdjacentPipes(pipe.getPos(), pipe.getNetworkType()), pipe.getPos());
+
         pipes.put(pipe.getPos(), pipe);
+        if (!RefinedPipes.SERVER_CONFIG.isStorePipesInChunks()) {
+            getRegion(pipe.getPos()).addPipe(pipe);
+        }
 
         LOGGER.debug("Pipe added at {}", pipe.getPos());
 
-        setDirty();
-
         Set<Pipe> adjacentPipes = findAdjacentPipes(pipe.getPos(), pipe.getNetworkType());
 
         if (adjacentPipes.isEmpty()) {
@@ -141,21 +253,190 @@ public class NetworkManager extends SavedData {
             throw new RuntimeException("Pipe at " + pos + " was not found");
         }
 
+        scanNetworksOf(Collections.singleton(pipe), pos);
+
         if (pipe.getNetwork() == null) {
             LOGGER.warn("Removed pipe at {} has no associated network", pipe.getPos());
         }
 
         pipes.remove(pipe.getPos());
+        removeFromRegion(pipe.getPos());
 
         LOGGER.debug("Pipe removed at {}", pipe.getPos());
 
-        setDirty();
-
         if (pipe.getNetwork() != null) {
             splitNetworks(pipe);
         }
     }
 
+    public void updateInitialScans() {
+        if (networksToScan.isEmpty()) {
+            return;
+        }
+
+        networksToScan.removeIf(n -> n.didDoInitialScan() || getNetwork(n.getId()) != n);
+
+        sortByDistance(networksToScan, ((ServerLevel) level).players().stream().map(ServerPlayer::blockPosition).collect(Collectors.toList()));
+
+        int budget = RefinedPipes.SERVER_CONFIG.getNetworkScanBudget();
+
+        Iterator<Network> it = networksToScan.iterator();
+        while (it.hasNext() && budget > 0) {
+            Network network = it.next();
+            it.remove();
+
+            budget -= network.scanGraph(level, network.getOriginPos()).getFoundPipes().size();
+        }
+    }
+
+    // Pipes of networks that didn't do their initial scan yet have no network, scan the networks closest to the change first until they do.
+    // Networks are scanned over several ticks after the world is loaded, this scans the network of the pipe right away.
+    @Nullable
+    public Network getScannedNetwork(Pipe pipe) {
+        scanNetworksOf(Collections.singleton(pipe), pipe.getPos());
+
+        return pipe.getNetwork();
+    }
+
+    private void scanNetworksOf(Collection<Pipe> pipes, BlockPos pos) {
+        if (networksToScan.isEmpty() || pipes.stream().allMatch(p -> p.getNetwork() != null)) {
+            return;
+        }
+
+        sortByDistance(networksToScan, Collections.singletonList(pos));
+
+        Iterator<Network> it = networksToScan.iterator();
+        while (it.hasNext() && pipes.stream().anyMatch(p -> p.getNetwork() == null)) {
+            Network network = it.next();
+            it.remove();
+
+            if (!network.didDoInitialScan() && getNetwork(network.getId()) == network) {
+                network.scanGraph(level, network.getOriginPos());
+            }
+        }
+    }
+
+    private static void sortByDistance(List<Network> networks, List<BlockPos> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        Map<Network, Double> distances = new HashMap<>();
+        for (Network network : networks) {
+            double distance = Double.MAX_VALUE;
+            for (BlockPos pos : positions) {
+                distance = Math.min(distance, pos.distSqr(network.getOriginPos()));
+            }
+            distances.put(network, distance);
+        }
+
+        networks.sort(Comparator.comparingDouble(distances::get));
+    }
+
+    public void loadPipe(Pipe pipe, @Nullable Integer networkId) {
+        Pipe replaced = pipes.put(pipe.getPos(), pipe);
+        if (replaced != null) {
+            unloadedPipes.add(replaced);
+        }
+
+        if (RefinedPipes.SERVER_CONFIG.isStorePipesInChunks()) {
+            removeFromRegion(pipe.getPos());
+        } else {
+            getRegion(pipe.getPos()).addPipe(pipe);
+        }
+
+        loadedPipes.add(pipe);
+        if (networkId != null) {
+            loadedPipeNetworkIds.put(pipe, networkId);
+        }
+    }
+
+    public void unloadPipe(BlockPos pos) {
+        Pipe pipe = pipes.remove(pos);
+        if (pipe == null) {
+            return;
+        }
+
+        removeFromRegion(pos);
+
+        pipe.onUnloaded();
+
+        unloadedPipes.add(pipe);
+    }
+
+    public void updateLoadedPipes() {
+        if (unloadedPipes.isEmpty() && loadedPipes.isEmpty()) {
+            return;
+        }
+
+        // Rescan every network that lost pipes once, instead of once per unloaded pipe.
+        Map<Network, BlockPos> affectedNetworks = new LinkedHashMap<>();
+        for (Pipe unloadedPipe : unloadedPipes) {
+            if (unloadedPipe.getNetwork() != null) {
+                affectedNetworks.putIfAbsent(unloadedPipe.getNetwork(), unloadedPipe.getPos());
+            }
+        }
+        unloadedPipes.clear();
+
+        affectedNetworks.forEach((network, unloadedPos) -> {
+            if (getNetwork(network.getId()) != network) {
+                return;
+            }
+
+            Pipe newOrigin = network.getPipes().stream().filter(p -> getPipe(p.getPos()) == p).findFirst().orElse(null);
+
+            // Networks without loaded pipes are kept around without pipes until one of their pipes is loaded again.
+            BlockPos scanPos = unloadedPos;
+            if (newOrigin != null) {
+                scanPos = newOrigin.getPos();
+                network.setOriginPos(scanPos);
+                setDirty();
+            }
+
+            NetworkGraphScannerResult result = network.scanGraph(level, scanPos);
+
+            for (Pipe removed : result.getRemovedPipes()) {
+                if (removed.getNetwork() == null && getPipe(removed.getPos()) == removed) {
+                    formNetworkAt(level, removed.getPos(), removed.getNetworkType());
+                }
+            }
+        });
+
+        for (Pipe loadedPipe : loadedPipes) {
+            if (getPipe(loadedPipe.getPos()) != loadedPipe) {
+                continue;
+            }
+
+            Integer networkId = loadedPipeNetworkIds.get(loadedPipe);
+            Network rememberedNetwork = networkId == null ? null : getNetwork(networkId);
+            if (rememberedNetwork != null && (!rememberedNetwork.getPipes().isEmpty() || !rememberedNetwork.getType().equals(loadedPipe.getNetworkType()))) {
+                rememberedNetwork = null;
+            }
+
+            if (loadedPipe.getNetwork() == null) {
+                Set<Pipe> adjacentPipes = findAdjacentPipes(loadedPipe.getPos(), loadedPipe.getNetworkType());
+                adjacentPipes.removeIf(p -> p.getNetwork() == null);
+
+                if (!adjacentPipes.isEmpty()) {
+                    mergeNetworksIntoOne(adjacentPipes, level, loadedPipe.getPos());
+                } else if (rememberedNetwork != null) {
+                    rememberedNetwork.setOriginPos(loadedPipe.getPos());
+                    rememberedNetwork.scanGraph(level, loadedPipe.getPos());
+                    setDirty();
+                } else {
+                    formNetworkAt(level, loadedPipe.getPos(), loadedPipe.getNetworkType());
+                }
+            }
+
+            if (rememberedNetwork != null && rememberedNetwork != loadedPipe.getNetwork()) {
+                removeNetwork(rememberedNetwork.getId());
+                rememberedNetwork.onMergedWith(loadedPipe.getNetwork());
+            }
+        }
+        loadedPipes.clear();
+        loadedPipeNetworkIds.clear();
+    }
+
     private void splitNetworks(Pipe originPipe) {
         // Sanity checks
         for (Pipe adjacent : findAdjacentPipes(originPipe.getPos(), originPipe.getNetworkType())) {
@@ -242,26 +523,49 @@ public class NetworkManager extends SavedData {
     }
 
     public Collection<Network> getNetworks() {
-        return networks.values();
+        return networks;
+    }
+
+    @Nullable
+    public Integer readNetworkId(CompoundTag tag, String key) {
+        if (tag.contains(key, Tag.TAG_INT)) {
+            return tag.getInt(key);
+        }
+
+        // @BC: network ids used to be strings.
+        if (tag.contains(key, Tag.TAG_STRING)) {
+            return legacyNetworkIds.get(tag.getString(key));
+        }
+
+        return null;
     }
 
     public void load(CompoundTag tag) {
-        ListTag pipes = tag.getList("pipes", Tag.TAG_COMPOUND);
-        for (Tag pipeTag : pipes) {
-            CompoundTag pipeTagCompound = (CompoundTag) pipeTag;
+        nextNetworkId = tag.getInt("nextNetworkId");
 
-            // @BC
-            ResourceLocation factoryId = pipeTagCompound.contains("id") ? new ResourceLocation(pipeTagCompound.getString("id")) : ItemPipe.ID;
+        CompoundTag legacyIds = tag.getCompound("legacyNetworkIds");
+        for (String legacyId : legacyIds.getAllKeys()) {
+            legacyNetworkIds.put(legacyId, legacyIds.getInt(legacyId));
+        }
 
-            PipeFactory factory = PipeRegistry.INSTANCE.getFactory(factoryId);
-            if (factory == null) {
-                LOGGER.warn("Pipe {} no longer exists", factoryId.toString());
-                continue;
-            }
+        for (long key : tag.getLongArray("regions")) {
+            PipeRegion region = loadRegion(key);
+            regions.put(key, region);
+            region.getPipes().forEach(p -> this.pipes.put(p.getPos(), p));
+        }
 
-            Pipe pipe = factory.createFromNbt(level, pipeTagCompound);
+        // @BC: pipes used to be stored in this file instead of in their region.
+        ListTag legacyPipes = tag.getList("pipes", Tag.TAG_COMPOUND);
+        for (Tag pipeTag : legacyPipes) {
+            Pipe pipe = readPipe(level, (CompoundTag) pipeTag);
+            if (pipe != null) {
+                this.pipes.put(pipe.getPos(), pipe);
+                getRegion(pipe.getPos()).addPipe(pipe);
+            }
+        }
 
-            this.pipes.put(pipe.getPos(), pipe);
+        if (!legacyPipes.isEmpty()) {
+            setDirty();
         }
 
         ListTag nets = tag.getList("networks", Tag.TAG_COMPOUND);
@@ -280,9 +584,23 @@ public class NetworkManager extends SavedData {
                 continue;
             }
 
+            // @BC: network ids used to be random strings, give them a new id and remember the old one for pipes stored in chunks.
+            if (netTagCompound.contains("id", Tag.TAG_STRING)) {
+                int id = createNetworkId();
+                legacyNetworkIds.put(netTagCompound.getString("id"), id);
+                netTagCompound.putInt("id", id);
+            }
+
             Network network = factory.create(netTagCompound);
+            if (getNetwork(network.getId()) != null) {
+                LOGGER.warn("Skipping duplicate network {}", network.getId());
+                continue;
+            }
+
+            putNetwork(network);
+            networksToScan.add(network);
 
-            networks.put(network.getId(), network);
+            nextNetworkId = Math.max(nextNetworkId, network.getId() + 1);
         }
 
         LOGGER.debug("Read {} pipes", pipes.size());
@@ -290,23 +608,27 @@ public class NetworkManager extends SavedData {
     }
 
     @Override
-    public CompoundTag save(CompoundTag tag) {
-        ListTag pipes = new ListTag();
-        this.pipes.values().forEach(p -> {
-            CompoundTag pipeTag = new CompoundTag();
-            pipeTag.putString("id", p.getId().toString());
-            pipes.add(p.writeToNbt(pipeTag));
-        });
-        tag.put("pipes", pipes);
+    protected Supplier<CompoundTag> createSnapshot() {
+        CompoundTag tag = new CompoundTag();
+
+        tag.put("regions", new LongArrayTag(new ArrayList<>(regions.keySet())));
+        tag.putInt("nextNetworkId", nextNetworkId);
+
+        legacyNetworkIds.values().removeIf(id -> getNetwork(id) == null);
+        if (!legacyNetworkIds.isEmpty()) {
+            CompoundTag legacyIds = new CompoundTag();
+            legacyNetworkIds.forEach(legacyIds::putInt);
+            tag.put("legacyNetworkIds", legacyIds);
+        }
 
         ListTag networks = new ListTag();
-        this.networks.values().forEach(n -> {
+        this.networks.forEach(n -> {
             CompoundTag networkTag = new CompoundTag();
             networkTag.putString("type", n.getType().toString());
             networks.add(n.writeToNbt(networkTag));
         });
         tag.put("networks", networks);
 
-        return tag;
+        return () -> tag;
     }
 }
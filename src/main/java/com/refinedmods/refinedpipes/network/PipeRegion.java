@@ -0,0 +1,77 @@
+package com.refinedmods.refinedpipes.network;
+
+import com.refinedmods.refinedpipes.network.pipe.Pipe;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class PipeRegion extends AsyncSavedData {
+    private static final int REGION_SHIFT = 9;
+
+    private final Level level;
+    private final Map<BlockPos, Pipe> pipes = new HashMap<>();
+
+    public PipeRegion(Level level) {
+        this.level = level;
+    }
+
+    public static long getKey(BlockPos pos) {
+        return ChunkPos.asLong(pos.getX() >> REGION_SHIFT, pos.getZ() >> REGION_SHIFT);
+    }
+
+    public static String getName(String prefix, long key) {
+        ChunkPos region = new ChunkPos(key);
+
+        return prefix + "_" + region.x + "_" + region.z;
+    }
+
+    public void addPipe(Pipe pipe) {
+        pipes.put(pipe.getPos(), pipe);
+        setDirty();
+    }
+
+    public void removePipe(BlockPos pos) {
+        if (pipes.remove(pos) != null) {
+            setDirty();
+        }
+    }
+
+    public Collection<Pipe> getPipes() {
+        return pipes.values();
+    }
+
+    public void load(CompoundTag tag) {
+        ListTag pipes = tag.getList("pipes", Tag.TAG_COMPOUND);
+        for (Tag pipeTag : pipes) {
+            Pipe pipe = NetworkManager.readPipe(level, (CompoundTag) pipeTag);
+            if (pipe != null) {
+                this.pipes.put(pipe.getPos(), pipe);
+            }
+        }
+    }
+
+    @Override
+    protected Supplier<CompoundTag> createSnapshot() {
+        List<Supplier<CompoundTag>> pipeSnapshots = new ArrayList<>(pipes.size());
+        pipes.values().forEach(p -> pipeSnapshots.add(NetworkManager.createPipeSnapshot(p)));
+
+        return () -> {
+            ListTag pipes = new ListTag();
+            pipeSnapshots.forEach(p -> pipes.add(p.get()));
+
+            CompoundTag tag = new CompoundTag();
+            tag.put("pipes", pipes);
+            return tag;
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package com.refinedmods.refinedpipes.network.energy;
 
+import com.refinedmods.refinedpipes.RefinedPipes;
 import com.refinedmods.refinedpipes.network.Network;
 import com.refinedmods.refinedpipes.network.graph.NetworkGraphScannerResult;
 import com.refinedmods.refinedpipes.network.pipe.Destination;
@@ -9,17 +10,22 @@ import com.refinedmods.refinedpipes.network.pipe.energy.EnergyPipeType;
 import net.minecraft.core.BlockPos;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraftforge.energy.CapabilityEnergy;
 import net.minecraftforge.energy.IEnergyStorage;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class EnergyNetwork extends Network {
     private final EnergyStorage energyStorage;
     private final EnergyPipeType pipeType;
 
-    public EnergyNetwork(BlockPos originPos, String id, EnergyPipeType pipeType) {
+    private int receiversEpoch = -1;
+    private int[] backoffTicks = new int[0];
+    private long[] retryAt = new long[0];
+    private long[] demands = new long[0];
+
+    public EnergyNetwork(BlockPos originPos, int id, EnergyPipeType pipeType) {
         super(originPos, id);
 
         this.pipeType = pipeType;
@@ -54,46 +60,98 @@ public class EnergyNetwork extends Network {
     public void update(Level level) {
         super.update(level);
 
+        int interval = getTickInterval(RefinedPipes.SERVER_CONFIG.getEnergyNetworkTickInterval(), energyStorage.getMaxEnergyStored(), pipeType.getTransferRate());
+        if (isDueForTick(level, interval)) {
+            distribute(level, (int) Math.min((long) pipeType.getTransferRate() * interval, Integer.MAX_VALUE));
+        }
+    }
+
+    private void distribute(Level level, int transferRate) {
         List<Destination> destinations = graph.getDestinations(DestinationType.ENERGY_STORAGE);
 
-        if (!destinations.isEmpty()) {
-            if (energyStorage.getEnergyStored() <= 0) {
-                return;
+        int stored = energyStorage.getEnergyStored();
+        if (destinations.isEmpty() || stored <= 0) {
+            return;
+        }
+
+        int size = destinations.size();
+        if (receiversEpoch != getTopologyEpoch() || backoffTicks.length != size) {
+            receiversEpoch = getTopologyEpoch();
+            backoffTicks = new int[size];
+            retryAt = new long[size];
+            demands = new long[size];
+        }
+
+        long gameTime = level.getGameTime();
+        int toSimulate = Math.min(transferRate, stored);
+
+        int receivers = 0;
+        for (int i = 0; i < size; ++i) {
+            if (gameTime < retryAt[i]) {
+                continue;
             }
 
-            for (Destination destination : destinations) {
-                BlockEntity blockEntity = destination.getConnectedPipe().getLevel().getBlockEntity(destination.getReceiver());
-                if (blockEntity == null) {
-                    continue;
-                }
-
-                IEnergyStorage handler = blockEntity.getCapability(CapabilityEnergy.ENERGY, destination.getIncomingDirection().getOpposite()).orElse(null);
-                if (handler == null) {
-                    continue;
-                }
-
-                if (!handler.canReceive()) {
-                    continue;
-                }
-
-                int toOffer = Math.min(pipeType.getTransferRate(), energyStorage.getEnergyStored());
-                if (toOffer <= 0) {
-                    break;
-                }
-
-                toOffer = energyStorage.extractEnergy(toOffer, false);
-                if (toOffer <= 0) {
-                    break;
-                }
-
-                int accepted = handler.receiveEnergy(toOffer, false);
-
-                int remainder = toOffer - accepted;
-                if (remainder > 0) {
-                    energyStorage.receiveEnergy(remainder, false);
-                }
+            IEnergyStorage handler = destinations.get(i).getHandler(CapabilityEnergy.ENERGY);
+
+            int demand = handler == null || !handler.canReceive() ? 0 : handler.receiveEnergy(toSimulate, true);
+            if (demand <= 0) {
+                backOff(i, gameTime);
+                continue;
             }
+
+            backoffTicks[i] = 0;
+            demands[receivers++] = ((long) demand << 32) | i;
         }
+
+        // Receivers that want less than an even share go first, so the energy they don't take is split over the others.
+        Arrays.sort(demands, 0, receivers);
+
+        int remaining = stored;
+        for (int i = 0; i < receivers && remaining > 0; ++i) {
+            int destinationIndex = (int) demands[i];
+            int demand = (int) (demands[i] >>> 32);
+
+            int receiversLeft = receivers - i;
+            int share = Math.min(demand, (int) ((remaining + (long) receiversLeft - 1) / receiversLeft));
+
+            IEnergyStorage handler = destinations.get(destinationIndex).getHandler(CapabilityEnergy.ENERGY);
+            if (handler == null) {
+                continue;
+            }
+
+            int toOffer = energyStorage.extractEnergy(share, false);
+            if (toOffer <= 0) {
+                break;
+            }
+
+            int accepted = handler.receiveEnergy(toOffer, false);
+            if (accepted <= 0) {
+                backOff(destinationIndex, gameTime);
+            }
+
+            int remainder = toOffer - accepted;
+            if (remainder > 0) {
+                energyStorage.receiveEnergy(remainder, false);
+            }
+
+            remaining -= accepted;
+        }
+    }
+
+    private void backOff(int destinationIndex, long gameTime) {
+        int maxBackoffTicks = RefinedPipes.SERVER_CONFIG.getEnergyMaxReceiverBackoffTicks();
+        if (maxBackoffTicks <= 0) {
+            return;
+        }
+
+        backoffTicks[destinationIndex] = Math.min(Math.max(backoffTicks[destinationIndex] * 2, 1), maxBackoffTicks);
+        retryAt[destinationIndex] = gameTime + backoffTicks[destinationIndex];
+    }
+
+    @Override
+    protected void onDestinationInvalidated() {
+        Arrays.fill(backoffTicks, 0);
+        Arrays.fill(retryAt, 0);
     }
 
     @Override
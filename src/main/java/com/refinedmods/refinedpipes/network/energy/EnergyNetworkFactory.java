@@ -3,14 +3,11 @@ package com.refinedmods.refinedpipes.network.energy;
 import com.refinedmods.refinedpipes.network.Network;
 import com.refinedmods.refinedpipes.network.NetworkFactory;
 import com.refinedmods.refinedpipes.network.pipe.energy.EnergyPipeType;
-import com.refinedmods.refinedpipes.util.StringUtil;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.Random;
-
 public class EnergyNetworkFactory implements NetworkFactory {
     private static final Logger LOGGER = LogManager.getLogger(EnergyNetworkFactory.class);
 
@@ -21,13 +18,13 @@ public class EnergyNetworkFactory implements NetworkFactory {
     }
 
     @Override
-    public Network create(BlockPos pos) {
-        return new EnergyNetwork(pos, StringUtil.randomString(new Random(), 8), pipeType);
+    public Network create(BlockPos pos, int id) {
+        return new EnergyNetwork(pos, id, pipeType);
     }
 
     @Override
     public Network create(CompoundTag tag) {
-        EnergyNetwork network = new EnergyNetwork(BlockPos.of(tag.getLong("origin")), tag.getString("id"), pipeType);
+        EnergyNetwork network = new EnergyNetwork(BlockPos.of(tag.getLong("origin")), tag.getInt("id"), pipeType);
 
         LOGGER.debug("Deserialized energy network {} of type {}", network.getId(), network.getType().toString());
 
@@ -1,30 +1,41 @@
 package com.refinedmods.refinedpipes.network.fluid;
 
+import com.refinedmods.refinedpipes.RefinedPipes;
+import com.refinedmods.refinedpipes.message.FluidNetworkMessage;
 import com.refinedmods.refinedpipes.network.Network;
 import com.refinedmods.refinedpipes.network.graph.NetworkGraphScannerResult;
 import com.refinedmods.refinedpipes.network.pipe.Destination;
 import com.refinedmods.refinedpipes.network.pipe.DestinationType;
 import com.refinedmods.refinedpipes.network.pipe.fluid.FluidPipe;
 import com.refinedmods.refinedpipes.network.pipe.fluid.FluidPipeType;
+import com.refinedmods.refinedpipes.network.pipe.Pipe;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraftforge.fluids.FluidAttributes;
 import net.minecraftforge.fluids.FluidStack;
 import net.minecraftforge.fluids.capability.CapabilityFluidHandler;
 import net.minecraftforge.fluids.capability.IFluidHandler;
 import net.minecraftforge.fluids.capability.templates.FluidTank;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class FluidNetwork extends Network {
     private final FluidTank fluidTank = new FluidTank(FluidAttributes.BUCKET_VOLUME);
 
     private final FluidPipeType pipeType;
 
-    public FluidNetwork(BlockPos originPos, String id, FluidPipeType pipeType) {
+    private int[] demands = new int[0];
+    private float lastFullness = -1;
+    private final Set<ChunkPos> pipeChunks = new HashSet<>();
+    private int pipeChunksEpoch = -1;
+
+    public FluidNetwork(BlockPos originPos, int id, FluidPipeType pipeType) {
         super(originPos, id);
 
         this.pipeType = pipeType;
@@ -34,6 +45,35 @@ public class FluidNetwork extends Network {
         return fluidTank;
     }
 
+    public float getFullness() {
+        int cap = fluidTank.getCapacity();
+        int stored = fluidTank.getFluidAmount();
+
+        return Math.round(((float) stored / (float) cap) * 10.0F) / 10.0F;
+    }
+
+    private void sendFluidNetworkUpdate(Level level) {
+        float fullness = getFullness();
+        if (Math.abs(lastFullness - fullness) >= 0.1) {
+            lastFullness = fullness;
+
+            RefinedPipes.NETWORK.sendToPlayersTracking((ServerLevel) level, getPipeChunks(), new FluidNetworkMessage(level.dimension(), getId(), fluidTank.getFluid(), fullness));
+        }
+    }
+
+    private Set<ChunkPos> getPipeChunks() {
+        if (pipeChunksEpoch != getTopologyEpoch()) {
+            pipeChunksEpoch = getTopologyEpoch();
+
+            pipeChunks.clear();
+            for (Pipe pipe : getPipes()) {
+                pipeChunks.add(new ChunkPos(pipe.getPos()));
+            }
+        }
+
+        return pipeChunks;
+    }
+
     @Override
     public NetworkGraphScannerResult scanGraph(Level level, BlockPos pos) {
         NetworkGraphScannerResult result = super.scanGraph(level, pos);
@@ -57,29 +97,72 @@ public class FluidNetwork extends Network {
     public void update(Level level) {
         super.update(level);
 
+        int interval = getTickInterval(RefinedPipes.SERVER_CONFIG.getFluidNetworkTickInterval(), fluidTank.getCapacity(), pipeType.getTransferRate());
+        if (isDueForTick(level, interval)) {
+            distribute((int) Math.min((long) pipeType.getTransferRate() * interval, Integer.MAX_VALUE));
+        }
+
+        sendFluidNetworkUpdate(level);
+    }
+
+    private void distribute(int transferRate) {
         List<Destination> destinations = graph.getDestinations(DestinationType.FLUID_HANDLER);
 
         if (fluidTank.getFluid().isEmpty() || destinations.isEmpty()) {
             return;
         }
 
-        for (Destination destination : destinations) {
-            BlockEntity blockEntity = destination.getConnectedPipe().getLevel().getBlockEntity(destination.getReceiver());
-            if (blockEntity == null) {
-                continue;
+        int destinationCount = destinations.size();
+        if (demands.length < destinationCount) {
+            demands = new int[destinationCount];
+        }
+
+        int available = fluidTank.getFluidAmount();
+        FluidStack toSimulate = fluidTank.getFluid().copy();
+        toSimulate.setAmount(Math.min(transferRate, available));
+
+        long totalDemand = 0;
+        for (int i = 0; i < destinationCount; ++i) {
+            IFluidHandler handler = destinations.get(i).getHandler(CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY);
+
+            demands[i] = handler == null ? 0 : handler.fill(toSimulate, IFluidHandler.FluidAction.SIMULATE);
+            totalDemand += demands[i];
+        }
+
+        if (totalDemand == 0) {
+            return;
+        }
+
+        // If there isn't enough fluid for everyone, every destination gets its share relative to its demand.
+        // Whatever is lost to rounding goes to the first destinations that still want more.
+        int leftover = 0;
+        if (totalDemand > available) {
+            int distributed = 0;
+            for (int i = 0; i < destinationCount; ++i) {
+                demands[i] = (int) (demands[i] * available / totalDemand);
+                distributed += demands[i];
             }
 
-            IFluidHandler handler = blockEntity.getCapability(CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY, destination.getIncomingDirection().getOpposite()).orElse(null);
-            if (handler == null) {
+            leftover = available - distributed;
+        }
+
+        for (int i = 0; i < destinationCount; ++i) {
+            int amount = demands[i];
+            if (leftover > 0 && amount > 0 && amount < toSimulate.getAmount()) {
+                amount++;
+                leftover--;
+            }
+
+            if (amount <= 0) {
                 continue;
             }
 
-            int toOfferAmount = Math.min(pipeType.getTransferRate(), fluidTank.getFluidAmount());
-            if (toOfferAmount <= 0) {
-                break;
+            IFluidHandler handler = destinations.get(i).getHandler(CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY);
+            if (handler == null) {
+                continue;
             }
 
-            FluidStack toOffer = fluidTank.drain(toOfferAmount, IFluidHandler.FluidAction.EXECUTE);
+            FluidStack toOffer = fluidTank.drain(amount, IFluidHandler.FluidAction.EXECUTE);
             if (toOffer.isEmpty()) {
                 break;
             }
@@ -3,14 +3,11 @@ package com.refinedmods.refinedpipes.network.fluid;
 import com.refinedmods.refinedpipes.network.Network;
 import com.refinedmods.refinedpipes.network.NetworkFactory;
 import com.refinedmods.refinedpipes.network.pipe.fluid.FluidPipeType;
-import com.refinedmods.refinedpipes.util.StringUtil;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.Random;
-
 public class FluidNetworkFactory implements NetworkFactory {
     private static final Logger LOGGER = LogManager.getLogger(FluidNetworkFactory.class);
 
@@ -21,13 +18,13 @@ public class FluidNetworkFactory implements NetworkFactory {
     }
 
     @Override
-    public Network create(BlockPos pos) {
-        return new FluidNetwork(pos, StringUtil.randomString(new Random(), 8), pipeType);
+    public Network create(BlockPos pos, int id) {
+        return new FluidNetwork(pos, id, pipeType);
     }
 
     @Override
     public Network create(CompoundTag tag) {
-        FluidNetwork network = new FluidNetwork(BlockPos.of(tag.getLong("origin")), tag.getString("id"), pipeType);
+        FluidNetwork network = new FluidNetwork(BlockPos.of(tag.getLong("origin")), tag.getInt("id"), pipeType);
 
         if (tag.contains("tank")) {
             network.getFluidTank().readFromNBT(tag.getCompound("tank"));
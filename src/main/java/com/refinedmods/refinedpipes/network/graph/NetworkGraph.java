@@ -33,6 +33,8 @@ public class NetworkGraph {
 
         for (Destination destination : result.getDestinations()) {
             destinations.computeIfAbsent(destination.getType(), type -> new ArrayList<>()).add(destination);
+
+            network.listenForInvalidation(destination.getCapability());
         }
 
         return result;
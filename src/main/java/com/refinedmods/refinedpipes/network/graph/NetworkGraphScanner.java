@@ -10,9 +10,13 @@ import net.minecraft.core.Direction;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraftforge.common.util.LazyOptional;
 import net.minecraftforge.energy.CapabilityEnergy;
+import net.minecraftforge.energy.IEnergyStorage;
 import net.minecraftforge.fluids.capability.CapabilityFluidHandler;
+import net.minecraftforge.fluids.capability.IFluidHandler;
 import net.minecraftforge.items.CapabilityItemHandler;
+import net.minecraftforge.items.IItemHandler;
 
 import java.util.*;
 
@@ -59,7 +63,7 @@ public class NetworkGraphScanner {
             }
 
             if (foundPipes.add(pipe)) {
-                if (!currentPipes.contains(pipe)) {
+                if (!currentPipes.contains(pipe) || pipe.getNetwork() == null) {
                     newPipes.add(pipe);
                 }
 
@@ -76,7 +80,7 @@ public class NetworkGraphScanner {
                     ));
                 }
             }
-        } else if (request.getParent() != null) { // This can NOT be called on pipe positions! (causes problems with block entities getting invalidated/validates when it shouldn't)
+        } else if (request.getParent() != null && request.getLevel().isLoaded(request.getPos())) { // This can NOT be called on pipe positions! (causes problems with block entities getting invalidated/validates when it shouldn't)
             // We can NOT have the TE capability checks always run regardless of whether there was a pipe or not.
             // Otherwise we have this loop: pipe gets placed -> network gets scanned -> TEs get checked -> it might check the TE we just placed
             // -> the newly created TE can be created in immediate mode -> TE#validate is called again -> TE#remove is called again!
@@ -88,18 +92,20 @@ public class NetworkGraphScanner {
                 BlockEntity blockEntity = request.getLevel().getBlockEntity(request.getPos());
 
                 if (blockEntity != null) {
-                    blockEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, request.getDirection().getOpposite())
-                        .ifPresent(itemHandler -> destinations.add(new Destination(DestinationType.ITEM_HANDLER, request.getPos(), request.getDirection(), connectedPipe)));
-
-                    blockEntity.getCapability(CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY, request.getDirection().getOpposite())
-                        .ifPresent(fluidHandler -> destinations.add(new Destination(DestinationType.FLUID_HANDLER, request.getPos(), request.getDirection(), connectedPipe)));
-
-                    blockEntity.getCapability(CapabilityEnergy.ENERGY, request.getDirection().getOpposite())
-                        .ifPresent(energyStorage -> {
-                            if (!(energyStorage instanceof EnergyPipeEnergyStorage)) {
-                                destinations.add(new Destination(DestinationType.ENERGY_STORAGE, request.getPos(), request.getDirection(), connectedPipe));
-                            }
-                        });
+                    LazyOptional<IItemHandler> itemHandler = blockEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, request.getDirection().getOpposite());
+                    if (itemHandler.isPresent()) {
+                        destinations.add(new Destination(DestinationType.ITEM_HANDLER, request.getPos(), request.getDirection(), connectedPipe, itemHandler));
+                    }
+
+                    LazyOptional<IFluidHandler> fluidHandler = blockEntity.getCapability(CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY, request.getDirection().getOpposite());
+                    if (fluidHandler.isPresent()) {
+                        destinations.add(new Destination(DestinationType.FLUID_HANDLER, request.getPos(), request.getDirection(), connectedPipe, fluidHandler));
+                    }
+
+                    LazyOptional<IEnergyStorage> energyStorage = blockEntity.getCapability(CapabilityEnergy.ENERGY, request.getDirection().getOpposite());
+                    if (energyStorage.map(s -> !(s instanceof EnergyPipeEnergyStorage)).orElse(false)) {
+                        destinations.add(new Destination(DestinationType.ENERGY_STORAGE, request.getPos(), request.getDirection(), connectedPipe, energyStorage));
+                    }
                 }
             }
         }
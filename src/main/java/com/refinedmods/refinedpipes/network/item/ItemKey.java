@@ -0,0 +1,57 @@
+package com.refinedmods.refinedpipes.network.item;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+public class ItemKey {
+    private final Item item;
+    @Nullable
+    private final CompoundTag tag;
+    private final int maxStackSize;
+
+    private ItemKey(Item item, @Nullable CompoundTag tag, int maxStackSize) {
+        this.item = item;
+        this.tag = tag;
+        this.maxStackSize = maxStackSize;
+    }
+
+    public static ItemKey of(ItemStack stack) {
+        return new ItemKey(stack.getItem(), stack.getTag() == null ? null : stack.getTag().copy(), stack.getMaxStackSize());
+    }
+
+    // Shares the tag of the stack, only for lookups that don't keep the key around.
+    public static ItemKey lookup(ItemStack stack) {
+        return new ItemKey(stack.getItem(), stack.getTag(), stack.getMaxStackSize());
+    }
+
+    public Item getItem() {
+        return item;
+    }
+
+    @Nullable
+    public CompoundTag getTag() {
+        return tag;
+    }
+
+    public int getMaxStackSize() {
+        return maxStackSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ItemKey itemKey = (ItemKey) o;
+        return item == itemKey.item &&
+            Objects.equals(tag, itemKey.tag);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(item, tag);
+    }
+}
@@ -3,6 +3,8 @@ package com.refinedmods.refinedpipes.network.item;
 import com.refinedmods.refinedpipes.RefinedPipes;
 import com.refinedmods.refinedpipes.network.Network;
 import com.refinedmods.refinedpipes.network.graph.NetworkGraphScannerResult;
+import com.refinedmods.refinedpipes.network.item.delivery.ItemDeliveryQueue;
+import com.refinedmods.refinedpipes.network.item.reservation.ReservationLedger;
 import com.refinedmods.refinedpipes.network.item.routing.DestinationPathCache;
 import com.refinedmods.refinedpipes.network.item.routing.DestinationPathCacheFactory;
 import com.refinedmods.refinedpipes.network.item.routing.EdgeFactory;
@@ -15,8 +17,14 @@ import com.refinedmods.refinedpipes.routing.Node;
 import com.refinedmods.refinedpipes.routing.NodeIndex;
 import net.minecraft.core.BlockPos;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
+import net.minecraftforge.items.CapabilityItemHandler;
+import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.ItemHandlerHelper;
 
+import javax.annotation.Nullable;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -24,9 +32,17 @@ import java.util.stream.Collectors;
 public class ItemNetwork extends Network {
     public static final ResourceLocation TYPE = new ResourceLocation(RefinedPipes.ID, "item");
 
+    private final ReservationLedger reservationLedger = new ReservationLedger();
+    private final ItemDeliveryQueue deliveryQueue = new ItemDeliveryQueue();
+    private final NoDestinationCache noDestinationCache = new NoDestinationCache();
+    private final Set<BlockPos> destinationReceivers = new HashSet<>();
+    private int destinationChanges;
+    @Nullable
+    private NetworkGraphScannerResult routingScanResult;
+    @Nullable
     private DestinationPathCache destinationPathCache;
 
-    public ItemNetwork(BlockPos originPos, String id) {
+    public ItemNetwork(BlockPos originPos, int id) {
         super(originPos, id);
     }
 
@@ -34,14 +50,31 @@ public class ItemNetwork extends Network {
     public NetworkGraphScannerResult scanGraph(Level level, BlockPos pos) {
         NetworkGraphScannerResult result = super.scanGraph(level, pos);
 
-        updateRouting(result, graph.getDestinations(DestinationType.ITEM_HANDLER));
+        // Routing is built when it is first needed.
+        this.routingScanResult = result;
+        this.destinationPathCache = null;
+
+        destinationReceivers.clear();
+        for (Destination destination : getDestinations(DestinationType.ITEM_HANDLER)) {
+            destinationReceivers.add(destination.getReceiver());
+        }
+
+        onDestinationsChanged();
 
         return result;
     }
 
     @Override
-    public void onMergedWith(Network mainNetwork) {
+    public void update(Level level) {
+        super.update(level);
 
+        deliveryQueue.flush(this, level);
+    }
+
+    @Override
+    public void onMergedWith(Network mainNetwork) {
+        // Items in flight in this network still take up space in the destinations.
+        ((ItemNetwork) mainNetwork).getReservationLedger().adoptAll(reservationLedger);
     }
 
     @Override
@@ -49,6 +82,55 @@ public class ItemNetwork extends Network {
         return TYPE;
     }
 
+    // Only changes to destinations can make room, changes to e.g. the source inventory of an extractor can't.
+    // Block updates only reach horizontal neighbors, destinations above or below a pipe rely on capability invalidation and the cache expiring.
+    public void onNeighborContentsChanged(BlockPos neighbor) {
+        if (destinationReceivers.contains(neighbor)) {
+            onDestinationsChanged();
+        }
+    }
+
+    public boolean canInsert(Destination destination, ItemStack stack) {
+        return getInsertableAmount(destination, stack) == stack.getCount();
+    }
+
+    public int getInsertableAmount(Destination destination, ItemStack stack) {
+        IItemHandler handler = destination.getHandler(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY);
+        if (handler == null) {
+            return 0;
+        }
+
+        // Items that are still in flight to this destination will take up space once they arrive.
+        int reserved = reservationLedger.getReserved(destination, stack);
+        ItemStack remainder = ItemHandlerHelper.insertItem(handler, ItemHandlerHelper.copyStackWithSize(stack, stack.getCount() + reserved), true);
+
+        int insertable = Math.max(0, stack.getCount() - remainder.getCount());
+
+        int reservedSlotsOfOtherItems = reservationLedger.getReservedSlotsOfOtherItems(destination, stack);
+        if (insertable > 0 && reservedSlotsOfOtherItems > 0) {
+            insertable = Math.min(insertable, getSpaceLeftByOtherItems(handler, stack, reservedSlotsOfOtherItems) - reserved);
+        }
+
+        return Math.max(0, insertable);
+    }
+
+    // Other items in flight are assumed to take empty slots, the stack can use the room next to the same item and the empty slots that remain.
+    private static int getSpaceLeftByOtherItems(IItemHandler handler, ItemStack stack, int reservedSlotsOfOtherItems) {
+        int space = 0;
+        int emptySlots = 0;
+
+        for (int i = 0; i < handler.getSlots(); ++i) {
+            ItemStack inSlot = handler.getStackInSlot(i);
+            if (inSlot.isEmpty()) {
+                emptySlots++;
+            } else if (ItemHandlerHelper.canItemStacksStack(inSlot, stack)) {
+                space += Math.max(0, Math.min(handler.getSlotLimit(i), stack.getMaxStackSize()) - inSlot.getCount());
+            }
+        }
+
+        return space + Math.max(0, emptySlots - reservedSlotsOfOtherItems) * stack.getMaxStackSize();
+    }
+
     private void updateRouting(NetworkGraphScannerResult result, List<Destination> destinations) {
         List<Node<BlockPos>> nodes = buildNodes(result.getFoundPipes());
 
@@ -69,6 +151,41 @@ public class ItemNetwork extends Network {
     }
 
     public DestinationPathCache getDestinationPathCache() {
+        if (destinationPathCache == null) {
+            if (routingScanResult == null) {
+                return new DestinationPathCache();
+            }
+
+            updateRouting(routingScanResult, graph.getDestinations(DestinationType.ITEM_HANDLER));
+            routingScanResult = null;
+        }
+
         return destinationPathCache;
     }
+
+    public ReservationLedger getReservationLedger() {
+        return reservationLedger;
+    }
+
+    public ItemDeliveryQueue getDeliveryQueue() {
+        return deliveryQueue;
+    }
+
+    public NoDestinationCache getNoDestinationCache() {
+        return noDestinationCache;
+    }
+
+    @Override
+    protected void onDestinationInvalidated() {
+        onDestinationsChanged();
+    }
+
+    public void onDestinationsChanged() {
+        noDestinationCache.invalidate();
+        destinationChanges++;
+    }
+
+    public int getDestinationChanges() {
+        return destinationChanges;
+    }
 }
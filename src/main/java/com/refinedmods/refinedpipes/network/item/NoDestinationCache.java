@@ -0,0 +1,60 @@
+package com.refinedmods.refinedpipes.network.item;
+
+import com.refinedmods.refinedpipes.RefinedPipes;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class NoDestinationCache {
+    private final Map<ItemKey, Entry> entries = new HashMap<>();
+
+    public boolean hasNoDestination(ItemStack stack, long gameTime) {
+        if (entries.isEmpty()) {
+            return false;
+        }
+
+        ItemKey key = ItemKey.lookup(stack);
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+
+        if (gameTime >= entry.expiresAt) {
+            entries.remove(key);
+            return false;
+        }
+
+        // If a smaller amount couldn't be inserted anywhere, a larger amount can't be either.
+        return stack.getCount() >= entry.count;
+    }
+
+    public void add(ItemStack stack, long gameTime) {
+        int ticks = RefinedPipes.SERVER_CONFIG.getNoDestinationCacheTicks();
+        if (ticks <= 0) {
+            return;
+        }
+
+        Entry existing = entries.get(ItemKey.lookup(stack));
+        if (existing != null && gameTime < existing.expiresAt && existing.count <= stack.getCount()) {
+            return;
+        }
+
+        entries.put(ItemKey.of(stack), new Entry(stack.getCount(), gameTime + ticks));
+    }
+
+    public void invalidate() {
+        entries.clear();
+    }
+
+    private static class Entry {
+        private final int count;
+        private final long expiresAt;
+
+        private Entry(int count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.refinedmods.refinedpipes.network.item.delivery;
+
+import com.refinedmods.refinedpipes.network.Network;
+import com.refinedmods.refinedpipes.network.item.ItemKey;
+import com.refinedmods.refinedpipes.network.pipe.transport.ItemTransport;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraftforge.items.CapabilityItemHandler;
+import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.ItemHandlerHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class ItemDeliveryQueue {
+    private static final Logger LOGGER = LogManager.getLogger(ItemDeliveryQueue.class);
+
+    private Map<Target, List<ItemTransport>> deliveries = new LinkedHashMap<>();
+
+    public void add(BlockPos currentPos, ItemTransport transport) {
+        deliveries.computeIfAbsent(new Target(transport.getDestination(), transport.getIncomingDirection(), currentPos), t -> new ArrayList<>()).add(transport);
+    }
+
+    public void flush(Network network, Level level) {
+        if (deliveries.isEmpty()) {
+            return;
+        }
+
+        Map<Target, List<ItemTransport>> toDeliver = deliveries;
+        deliveries = new LinkedHashMap<>();
+
+        toDeliver.forEach((target, transports) -> deliver(network, level, target, transports));
+    }
+
+    @Nullable
+    private IItemHandler getItemHandler(Level level, Target target, List<ItemTransport> transports) {
+        // Reserved destinations have the item handler cached.
+        for (ItemTransport transport : transports) {
+            if (transport.getReservation() != null) {
+                return transport.getReservation().getDestination().getHandler(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY);
+            }
+        }
+
+        BlockEntity blockEntity = level.getBlockEntity(target.pos);
+        if (blockEntity == null) {
+            return null;
+        }
+
+        return blockEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, target.incomingDirection.getOpposite()).orElse(null);
+    }
+
+    private void deliver(Network network, Level level, Target target, List<ItemTransport> transports) {
+        transports.forEach(ItemTransport::releaseReservation);
+
+        IItemHandler itemHandler = getItemHandler(level, target, transports);
+        if (itemHandler == null) {
+            LOGGER.warn("Destination item handler is no longer exposing a capability at " + target.pos);
+            transports.forEach(t -> t.cancel(network, level, target.currentPos));
+            return;
+        }
+
+        Map<ItemKey, List<ItemTransport>> transportsByItem = new LinkedHashMap<>();
+        for (ItemTransport transport : transports) {
+            transportsByItem.computeIfAbsent(ItemKey.lookup(transport.getValue()), k -> new ArrayList<>()).add(transport);
+        }
+
+        for (List<ItemTransport> sameItem : transportsByItem.values()) {
+            int start = 0;
+            while (start < sameItem.size()) {
+                int maxStackSize = sameItem.get(start).getValue().getMaxStackSize();
+                int count = sameItem.get(start).getValue().getCount();
+                int end = start + 1;
+
+                while (end < sameItem.size() && count + sameItem.get(end).getValue().getCount() <= maxStackSize) {
+                    count += sameItem.get(end).getValue().getCount();
+                    end++;
+                }
+
+                insert(network, level, target, itemHandler, sameItem.subList(start, end), count);
+
+                start = end;
+            }
+        }
+    }
+
+    private void insert(Network network, Level level, Target target, IItemHandler itemHandler, List<ItemTransport> batch, int count) {
+        if (batch.size() > 1) {
+            ItemStack merged = ItemHandlerHelper.copyStackWithSize(batch.get(0).getValue(), count);
+
+            if (ItemHandlerHelper.insertItem(itemHandler, merged, true).isEmpty()) {
+                ItemHandlerHelper.insertItem(itemHandler, merged, false);
+                return;
+            }
+        }
+
+        // The destination can't take the whole batch, so find out which transports still fit.
+        for (ItemTransport transport : batch) {
+            if (ItemHandlerHelper.insertItem(itemHandler, transport.getValue(), true).isEmpty()) {
+                ItemHandlerHelper.insertItem(itemHandler, transport.getValue(), false);
+            } else {
+                transport.cancel(network, level, target.currentPos);
+            }
+        }
+    }
+
+    private static class Target {
+        private final BlockPos pos;
+        private final Direction incomingDirection;
+        private final BlockPos currentPos;
+
+        private Target(BlockPos pos, Direction incomingDirection, BlockPos currentPos) {
+            this.pos = pos;
+            this.incomingDirection = incomingDirection;
+            this.currentPos = currentPos;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Target target = (Target) o;
+            return pos.equals(target.pos) &&
+                incomingDirection == target.incomingDirection &&
+                currentPos.equals(target.currentPos);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pos, incomingDirection, currentPos);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.refinedmods.refinedpipes.network.item.reservation;
+
+import com.refinedmods.refinedpipes.network.item.ItemKey;
+import com.refinedmods.refinedpipes.network.pipe.Destination;
+
+public class Reservation {
+    private ReservationLedger ledger;
+    private final Destination destination;
+    private final ItemKey key;
+    private final int amount;
+    private boolean released;
+
+    Reservation(ReservationLedger ledger, Destination destination, ItemKey key, int amount) {
+        this.ledger = ledger;
+        this.destination = destination;
+        this.key = key;
+        this.amount = amount;
+    }
+
+    ReservationLedger getLedger() {
+        return ledger;
+    }
+
+    void setLedger(ReservationLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    public Destination getDestination() {
+        return destination;
+    }
+
+    public ItemKey getKey() {
+        return key;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    public void release() {
+        if (released) {
+            return;
+        }
+
+        released = true;
+
+        ledger.release(this);
+    }
+}
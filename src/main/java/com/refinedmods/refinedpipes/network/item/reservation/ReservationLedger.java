@@ -0,0 +1,99 @@
+package com.refinedmods.refinedpipes.network.item.reservation;
+
+import com.refinedmods.refinedpipes.network.item.ItemKey;
+import com.refinedmods.refinedpipes.network.pipe.Destination;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class ReservationLedger {
+    private final Map<Destination, Map<ItemKey, Integer>> reserved = new HashMap<>();
+    private final Set<Reservation> reservations = new HashSet<>();
+
+    public Reservation reserve(Destination destination, ItemStack stack) {
+        Reservation reservation = new Reservation(this, destination, ItemKey.of(stack), stack.getCount());
+
+        add(reservation);
+
+        return reservation;
+    }
+
+    // Moves a reservation made in another network, e.g. after networks are merged or split, to this ledger.
+    public void adopt(Reservation reservation) {
+        if (reservation.getLedger() == this || reservation.isReleased()) {
+            return;
+        }
+
+        reservation.getLedger().remove(reservation);
+        reservation.setLedger(this);
+
+        add(reservation);
+    }
+
+    public void adoptAll(ReservationLedger other) {
+        for (Reservation reservation : new ArrayList<>(other.reservations)) {
+            adopt(reservation);
+        }
+    }
+
+    private void add(Reservation reservation) {
+        reservations.add(reservation);
+        reserved.computeIfAbsent(reservation.getDestination(), d -> new HashMap<>()).merge(reservation.getKey(), reservation.getAmount(), Integer::sum);
+    }
+
+    public int getReserved(Destination destination, ItemStack stack) {
+        Map<ItemKey, Integer> reservedForDestination = reserved.get(destination);
+        if (reservedForDestination == null) {
+            return 0;
+        }
+
+        return reservedForDestination.getOrDefault(ItemKey.lookup(stack), 0);
+    }
+
+    // The amount of slots that items other than the given stack that are in flight to the destination will need.
+    public int getReservedSlotsOfOtherItems(Destination destination, ItemStack stack) {
+        Map<ItemKey, Integer> reservedForDestination = reserved.get(destination);
+        if (reservedForDestination == null) {
+            return 0;
+        }
+
+        ItemKey key = ItemKey.lookup(stack);
+
+        int slots = 0;
+        for (Map.Entry<ItemKey, Integer> entry : reservedForDestination.entrySet()) {
+            if (!entry.getKey().equals(key)) {
+                int maxStackSize = Math.max(1, entry.getKey().getMaxStackSize());
+                slots += (entry.getValue() + maxStackSize - 1) / maxStackSize;
+            }
+        }
+
+        return slots;
+    }
+
+    void release(Reservation reservation) {
+        remove(reservation);
+    }
+
+    private void remove(Reservation reservation) {
+        reservations.remove(reservation);
+
+        Map<ItemKey, Integer> reservedForDestination = reserved.get(reservation.getDestination());
+        if (reservedForDestination == null) {
+            return;
+        }
+
+        reservedForDestination.computeIfPresent(reservation.getKey(), (key, amount) -> {
+            int remaining = amount - reservation.getAmount();
+
+            return remaining <= 0 ? null : remaining;
+        });
+
+        if (reservedForDestination.isEmpty()) {
+            reserved.remove(reservation.getDestination());
+        }
+    }
+}
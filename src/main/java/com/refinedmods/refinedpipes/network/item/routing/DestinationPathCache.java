@@ -5,15 +5,21 @@ import com.refinedmods.refinedpipes.routing.Path;
 import net.minecraft.core.BlockPos;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
 
 public class DestinationPathCache {
     private final Map<BlockPos, Map<Destination, Path<BlockPos>>> paths = new HashMap<>();
+    private final Map<BlockPos, List<Destination>> destinationsByDistance = new HashMap<>();
 
     public void addPath(BlockPos source, Destination destination, Path<BlockPos> path) {
         paths.computeIfAbsent(source, s -> new HashMap<>()).put(destination, path);
+        destinationsByDistance.remove(source);
     }
 
     @Nullable
@@ -27,58 +33,59 @@ public class DestinationPathCache {
     }
 
     @Nullable
-    public Destination findNearestDestination(BlockPos source, Predicate<Destination> filter) {
-        Map<Destination, Path<BlockPos>> pathsFromSource = paths.get(source);
-        if (pathsFromSource == null) {
+    public Path<BlockPos> getPathBetweenPipes(BlockPos source, BlockPos target) {
+        Map<Destination, Path<BlockPos>> pathsFromTarget = paths.get(target);
+        if (pathsFromTarget == null) {
             return null;
         }
 
-        Destination foundDestination = null;
-        int shortestDistance = -1;
-
-        for (Map.Entry<Destination, Path<BlockPos>> destinationAndPath : pathsFromSource.entrySet()) {
-            Destination destination = destinationAndPath.getKey();
-            if (!filter.test(destination)) {
-                continue;
+        // Paths are symmetric, so a path from the target to a destination connected to the source pipe is the reversed route.
+        for (Map.Entry<Destination, Path<BlockPos>> destinationAndPath : pathsFromTarget.entrySet()) {
+            if (destinationAndPath.getKey().getConnectedPipe().getPos().equals(source)) {
+                return destinationAndPath.getValue().reverse();
             }
+        }
 
-            Path<BlockPos> path = destinationAndPath.getValue();
-            int distance = path.length();
+        return null;
+    }
 
-            if ((shortestDistance == -1 || distance < shortestDistance)) {
-                shortestDistance = distance;
-                foundDestination = destination;
+    // Sorted when a source is first used, only pipes with an extractor look up destinations.
+    private List<Destination> getDestinationsByDistance(BlockPos source) {
+        return destinationsByDistance.computeIfAbsent(source, s -> {
+            Map<Destination, Path<BlockPos>> pathsFromSource = paths.get(s);
+            if (pathsFromSource == null) {
+                return Collections.emptyList();
             }
-        }
 
-        return foundDestination;
+            List<Destination> destinations = new ArrayList<>(pathsFromSource.keySet());
+            destinations.sort(Comparator.comparingInt(d -> pathsFromSource.get(d).length()));
+            return destinations;
+        });
     }
 
     @Nullable
-    public Destination findFurthestDestination(BlockPos source, Predicate<Destination> filter) {
-        Map<Destination, Path<BlockPos>> pathsFromSource = paths.get(source);
-        if (pathsFromSource == null) {
-            return null;
-        }
-
-        Destination foundDestination = null;
-        int furthestDistance = -1;
+    public Destination findNearestDestination(BlockPos source, Predicate<Destination> filter) {
+        List<Destination> destinations = getDestinationsByDistance(source);
 
-        for (Map.Entry<Destination, Path<BlockPos>> destinationAndPath : pathsFromSource.entrySet()) {
-            Destination destination = destinationAndPath.getKey();
-            if (!filter.test(destination)) {
-                continue;
+        for (int i = 0; i < destinations.size(); ++i) {
+            if (filter.test(destinations.get(i))) {
+                return destinations.get(i);
             }
+        }
 
-            Path<BlockPos> path = destinationAndPath.getValue();
-            int distance = path.length();
+        return null;
+    }
+
+    @Nullable
+    public Destination findFurthestDestination(BlockPos source, Predicate<Destination> filter) {
+        List<Destination> destinations = getDestinationsByDistance(source);
 
-            if ((furthestDistance == -1 || distance > furthestDistance)) {
-                furthestDistance = distance;
-                foundDestination = destination;
+        for (int i = destinations.size() - 1; i >= 0; --i) {
+            if (filter.test(destinations.get(i))) {
+                return destinations.get(i);
             }
         }
 
-        return foundDestination;
+        return null;
     }
 }
@@ -1,21 +1,68 @@
 package com.refinedmods.refinedpipes.network.pipe;
 
+import com.refinedmods.refinedpipes.network.Network;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.util.LazyOptional;
 
+import javax.annotation.Nullable;
 import java.util.Objects;
 
 public class Destination {
+    private static final int RETRY_CAPABILITY_TICKS = 20;
+
     private final DestinationType type;
     private final BlockPos receiver;
     private final Direction incomingDirection;
     private final Pipe connectedPipe;
+    private LazyOptional<?> capability;
+    private long retryCapabilityAt;
 
-    public Destination(DestinationType type, BlockPos receiver, Direction incomingDirection, Pipe connectedPipe) {
+    public Destination(DestinationType type, BlockPos receiver, Direction incomingDirection, Pipe connectedPipe, LazyOptional<?> capability) {
         this.type = type;
         this.receiver = receiver;
         this.incomingDirection = incomingDirection;
         this.connectedPipe = connectedPipe;
+        this.capability = capability;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T getHandler(Capability<T> capabilityType) {
+        if (!capability.isPresent()) {
+            // Destinations are recreated when the network is rescanned, until then a missing receiver is only looked up again once in a while.
+            Level level = connectedPipe.getLevel();
+            if (level.getGameTime() < retryCapabilityAt) {
+                return null;
+            }
+
+            retryCapabilityAt = level.getGameTime() + RETRY_CAPABILITY_TICKS;
+
+            if (!level.isLoaded(receiver)) {
+                return null;
+            }
+
+            BlockEntity blockEntity = level.getBlockEntity(receiver);
+            if (blockEntity == null) {
+                return null;
+            }
+
+            capability = blockEntity.getCapability(capabilityType, incomingDirection.getOpposite());
+
+            Network network = connectedPipe.getNetwork();
+            if (network != null) {
+                network.listenForInvalidation(capability);
+            }
+        }
+
+        return (T) capability.orElse(null);
+    }
+
+    public LazyOptional<?> getCapability() {
+        return capability;
     }
 
     public BlockPos getReceiver() {
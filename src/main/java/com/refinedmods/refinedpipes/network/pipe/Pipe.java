@@ -12,6 +12,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Objects;
+import java.util.function.Supplier;
 
 public abstract class Pipe {
     protected final Level level;
@@ -31,6 +32,9 @@ public abstract class Pipe {
         }
     }
 
+    public void onUnloaded() {
+    }
+
     public ServerAttachmentManager getAttachmentManager() {
         return attachmentManager;
     }
@@ -76,6 +80,12 @@ public abstract class Pipe {
         return tag;
     }
 
+    public Supplier<CompoundTag> createSnapshot(CompoundTag tag) {
+        writeToNbt(tag);
+
+        return () -> tag;
+    }
+
     public abstract ResourceLocation getId();
 
     public abstract ResourceLocation getNetworkType();
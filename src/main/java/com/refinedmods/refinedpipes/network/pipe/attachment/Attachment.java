@@ -32,6 +32,9 @@ public abstract class Attachment {
 
     public abstract void update();
 
+    public void onNeighborChanged() {
+    }
+
     public abstract ResourceLocation getId();
 
     public abstract ItemStack getDrop();
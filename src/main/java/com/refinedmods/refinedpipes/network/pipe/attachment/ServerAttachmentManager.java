@@ -1,5 +1,7 @@
 package com.refinedmods.refinedpipes.network.pipe.attachment;
 
+import com.refinedmods.refinedpipes.network.Network;
+import com.refinedmods.refinedpipes.network.NetworkManager;
 import com.refinedmods.refinedpipes.network.pipe.Pipe;
 import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
@@ -51,15 +53,23 @@ public class ServerAttachmentManager implements AttachmentManager {
         attachments.remove(dir);
         attachmentState[dir.ordinal()] = null;
 
-        // Re-scan graph, required to rebuild destinations (chests with an attachment connected are no valid destination, refresh that)
-        pipe.getNetwork().scanGraph(pipe.getLevel(), pipe.getPos());
+        scanGraph();
     }
 
     public void setAttachmentAndScanGraph(Direction dir, Attachment attachment) {
         setAttachment(dir, attachment);
 
+        scanGraph();
+    }
+
+    private void scanGraph() {
+        Network network = NetworkManager.get(pipe.getLevel()).getScannedNetwork(pipe);
+        if (network == null) {
+            return;
+        }
+
         // Re-scan graph, required to rebuild destinations (chests with an attachment connected are no valid destination, refresh that)
-        pipe.getNetwork().scanGraph(pipe.getLevel(), pipe.getPos());
+        network.scanGraph(pipe.getLevel(), pipe.getPos());
     }
 
     private void setAttachment(Direction dir, Attachment attachment) {
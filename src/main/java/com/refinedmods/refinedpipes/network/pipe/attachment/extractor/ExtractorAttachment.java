@@ -1,11 +1,14 @@
 package com.refinedmods.refinedpipes.network.pipe.attachment.extractor;
 
+import com.refinedmods.refinedpipes.RefinedPipes;
 import com.refinedmods.refinedpipes.container.provider.ExtractorAttachmentMenuProvider;
 import com.refinedmods.refinedpipes.inventory.fluid.FluidInventory;
 import com.refinedmods.refinedpipes.network.Network;
 import com.refinedmods.refinedpipes.network.NetworkManager;
 import com.refinedmods.refinedpipes.network.fluid.FluidNetwork;
 import com.refinedmods.refinedpipes.network.item.ItemNetwork;
+import com.refinedmods.refinedpipes.network.item.reservation.Reservation;
+import com.refinedmods.refinedpipes.network.item.routing.DestinationPathCache;
 import com.refinedmods.refinedpipes.network.pipe.Destination;
 import com.refinedmods.refinedpipes.network.pipe.Pipe;
 import com.refinedmods.refinedpipes.network.pipe.attachment.Attachment;
@@ -27,12 +30,14 @@ import net.minecraftforge.fluids.capability.CapabilityFluidHandler;
 import net.minecraftforge.fluids.capability.IFluidHandler;
 import net.minecraftforge.items.CapabilityItemHandler;
 import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.ItemHandlerHelper;
 import net.minecraftforge.items.ItemStackHandler;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nullable;
+import java.util.List;
 
 public class ExtractorAttachment extends Attachment {
     public static final int MAX_FILTER_SLOTS = 15;
@@ -42,8 +47,17 @@ public class ExtractorAttachment extends Attachment {
     private final FluidInventory fluidFilter;
 
     private final ItemDestinationFinder itemDestinationFinder = new ItemDestinationFinder(this);
+    @Nullable
+    private ItemFilterMatcher itemFilterMatcher;
+    @Nullable
+    private FluidFilterMatcher fluidFilterMatcher;
 
     private int ticks;
+    private int idlePolls;
+    private boolean waitingForDestination;
+    private int seenDestinationChanges;
+    private int slotIndex;
+    private int slotBudget;
     private RedstoneMode redstoneMode = RedstoneMode.IGNORED;
     private BlacklistWhitelist blacklistWhitelist = BlacklistWhitelist.BLACKLIST;
     private RoutingMode routingMode = RoutingMode.NEAREST;
@@ -66,7 +80,18 @@ public class ExtractorAttachment extends Attachment {
                 super.onContentsChanged(slot);
 
                 if (attachment != null) {
-                    NetworkManager.get(attachment.pipe.getLevel()).setDirty();
+                    attachment.itemFilterMatcher = null;
+
+                    NetworkManager.get(attachment.pipe.getLevel()).markDirty(attachment.pipe.getPos());
+                }
+            }
+
+            @Override
+            protected void onLoad() {
+                super.onLoad();
+
+                if (attachment != null) {
+                    attachment.itemFilterMatcher = null;
                 }
             }
         };
@@ -79,7 +104,18 @@ public class ExtractorAttachment extends Attachment {
                 super.onContentsChanged();
 
                 if (attachment != null) {
-                    NetworkManager.get(attachment.pipe.getLevel()).setDirty();
+                    attachment.fluidFilterMatcher = null;
+
+                    NetworkManager.get(attachment.pipe.getLevel()).markDirty(attachment.pipe.getPos());
+                }
+            }
+
+            @Override
+            protected void onLoad() {
+                super.onLoad();
+
+                if (attachment != null) {
+                    attachment.fluidFilterMatcher = null;
                 }
             }
         };
@@ -100,109 +136,217 @@ public class ExtractorAttachment extends Attachment {
             tickInterval = type.getFluidTickInterval();
         }
 
-        if (tickInterval != 0 && (ticks++) % tickInterval != 0) {
+        if (waitingForDestination && hasDestinationChanged(network)) {
+            resetIdleTickInterval();
+        }
+
+        ticks++;
+        if (ticks < getIdleTickInterval(tickInterval)) {
             return;
         }
+        ticks = 0;
 
         if (!redstoneMode.isEnabled(pipe.getLevel(), pipe.getPos())) {
             return;
         }
 
+        waitingForDestination = false;
+
+        boolean extracted = false;
+
         BlockPos destinationPos = pipe.getPos().relative(getDirection());
 
         BlockEntity blockEntity = pipe.getLevel().getBlockEntity(destinationPos);
-        if (blockEntity == null) {
-            return;
+        if (blockEntity != null) {
+            if (network instanceof ItemNetwork) {
+                extracted = blockEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, getDirection().getOpposite())
+                    .map(itemHandler -> update((ItemNetwork) network, destinationPos, itemHandler))
+                    .orElse(false);
+            } else if (network instanceof FluidNetwork) {
+                extracted = blockEntity.getCapability(CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY, getDirection().getOpposite())
+                    .map(fluidHandler -> update((FluidNetwork) network, fluidHandler))
+                    .orElse(false);
+            }
+        }
+
+        if (extracted) {
+            idlePolls = 0;
+        } else if (idlePolls < 30) {
+            idlePolls++;
+        }
+    }
+
+    // Idle extractors double their interval per poll that didn't extract anything, up to the configured maximum.
+    private int getIdleTickInterval(int tickInterval) {
+        int maxIdleTickInterval = RefinedPipes.SERVER_CONFIG.getExtractorMaxIdleTickInterval();
+        if (idlePolls == 0 || tickInterval >= maxIdleTickInterval) {
+            return tickInterval;
         }
 
+        return (int) Math.min(maxIdleTickInterval, (long) Math.max(tickInterval, 1) << idlePolls);
+    }
+
+    private boolean hasDestinationChanged(@Nullable Network network) {
         if (network instanceof ItemNetwork) {
-            blockEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, getDirection().getOpposite())
-                .ifPresent(itemHandler -> update((ItemNetwork) network, destinationPos, itemHandler));
+            return ((ItemNetwork) network).getDestinationChanges() != seenDestinationChanges;
         } else if (network instanceof FluidNetwork) {
-            blockEntity.getCapability(CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY, getDirection().getOpposite())
-                .ifPresent(fluidHandler -> update((FluidNetwork) network, fluidHandler));
+            return ((FluidNetwork) network).getFluidTank().getSpace() > 0;
         }
+
+        return false;
     }
 
-    private void update(ItemNetwork network, BlockPos sourcePos, IItemHandler source) {
-        if (stackSize == 0) {
-            return;
+    private void resetIdleTickInterval() {
+        idlePolls = 0;
+        waitingForDestination = false;
+    }
+
+    @Override
+    public void onNeighborChanged() {
+        resetIdleTickInterval();
+    }
+
+    private boolean update(ItemNetwork network, BlockPos sourcePos, IItemHandler source) {
+        if (stackSize == 0 || source.getSlots() == 0) {
+            return false;
         }
 
+        if (slotIndex >= source.getSlots()) {
+            slotIndex = 0;
+        }
+
+        slotBudget = Math.min(source.getSlots(), RefinedPipes.SERVER_CONFIG.getExtractorSlotsPerPoll());
+
+        DestinationPathCache destinationPathCache = network.getDestinationPathCache();
+
+        seenDestinationChanges = network.getDestinationChanges();
+
+        int extracted = 0;
+        while (extracted < type.getStacksToExtract() && slotBudget > 0 && extract(network, destinationPathCache, sourcePos, source)) {
+            extracted++;
+        }
+
+        return extracted > 0;
+    }
+
+    private boolean extract(ItemNetwork network, DestinationPathCache destinationPathCache, BlockPos sourcePos, IItemHandler source) {
         Pair<Destination, Integer> destinationAndSourceSlot = findDestinationAndSourceSlot(sourcePos, source);
         if (destinationAndSourceSlot == null) {
-            return;
+            return false;
+        }
+
+        if (routingMode == RoutingMode.BALANCED) {
+            return extractBalanced(network, destinationPathCache, sourcePos, source, destinationAndSourceSlot.getRight());
         }
 
         Destination destination = destinationAndSourceSlot.getLeft();
 
-        Path<BlockPos> path = network
-            .getDestinationPathCache()
-            .getPath(pipe.getPos(), destination);
+        Path<BlockPos> path = destinationPathCache.getPath(pipe.getPos(), destination);
         if (path == null) {
             LOGGER.error("No path found from " + pipe.getPos() + " to " + destination);
-            return;
+            return false;
         }
 
         ItemStack extracted = source.extractItem(destinationAndSourceSlot.getRight(), stackSize, false);
         if (extracted.isEmpty()) {
-            return;
+            return false;
+        }
+
+        addTransport(network, sourcePos, destination, path, extracted);
+
+        return true;
+    }
+
+    private boolean extractBalanced(ItemNetwork network, DestinationPathCache destinationPathCache, BlockPos sourcePos, IItemHandler source, int slot) {
+        List<Pair<Destination, Integer>> split = itemDestinationFinder.getBalancedSplit();
+
+        ItemStack extracted = source.extractItem(slot, split.stream().mapToInt(Pair::getRight).sum(), false);
+        if (extracted.isEmpty()) {
+            return false;
         }
 
+        int remaining = extracted.getCount();
+
+        for (Pair<Destination, Integer> part : split) {
+            int amount = Math.min(part.getRight(), remaining);
+            if (amount <= 0) {
+                break;
+            }
+
+            remaining -= amount;
+
+            addTransport(network, sourcePos, part.getLeft(), destinationPathCache.getPath(pipe.getPos(), part.getLeft()), ItemHandlerHelper.copyStackWithSize(extracted, amount));
+        }
+
+        return true;
+    }
+
+    private void addTransport(ItemNetwork network, BlockPos sourcePos, Destination destination, Path<BlockPos> path, ItemStack extracted) {
         BlockPos fromPos = pipe.getPos().relative(getDirection());
 
+        Reservation reservation = network.getReservationLedger().reserve(destination, extracted);
+
         ((ItemPipe) pipe).addTransport(new ItemTransport(
-            extracted.copy(),
+            extracted,
             fromPos,
             destination.getReceiver(),
+            destination.getIncomingDirection(),
             path.toQueue(),
-            new ItemInsertTransportCallback(destination.getReceiver(), destination.getIncomingDirection(), extracted),
-            new ItemBounceBackTransportCallback(destination.getReceiver(), sourcePos, extracted),
-            new ItemPipeGoneTransportCallback(extracted)
+            sourcePos,
+            getDirection(),
+            0,
+            ItemInsertTransportCallback.INSTANCE,
+            ItemBounceBackTransportCallback.INSTANCE,
+            ItemPipeGoneTransportCallback.INSTANCE,
+            reservation
         ));
     }
 
     private Pair<Destination, Integer> findDestinationAndSourceSlot(BlockPos sourcePos, IItemHandler source) {
-        int startIndex = 0;
+        int slots = source.getSlots();
 
-        do {
-            ItemStack slot = source.getStackInSlot(startIndex);
-            if (slot.isEmpty() || !acceptsItem(slot)) {
-                startIndex++;
-                continue;
-            }
+        while (slotBudget > 0) {
+            slotBudget--;
 
-            ItemStack extracted = source.extractItem(startIndex, stackSize, true);
-            if (extracted.isEmpty()) {
-                startIndex++;
-                continue;
-            }
+            ItemStack slot = source.getStackInSlot(slotIndex);
+
+            if (!slot.isEmpty() && acceptsItem(slot)) {
+                ItemStack extracted = source.extractItem(slotIndex, stackSize, true);
 
-            Destination destination = itemDestinationFinder.find(routingMode, sourcePos, extracted);
-            if (destination == null) {
-                startIndex++;
-                continue;
+                if (!extracted.isEmpty()) {
+                    Destination destination = itemDestinationFinder.find(routingMode, sourcePos, extracted);
+
+                    // Stay on this slot, the next extraction will most likely take from it again.
+                    // Only slots that didn't yield a stack use up the budget, so sources with few slots can still give several stacks.
+                    if (destination != null) {
+                        slotBudget++;
+                        return Pair.of(destination, slotIndex);
+                    }
+
+                    waitingForDestination = true;
+                }
             }
 
-            return Pair.of(destination, startIndex);
-        } while (startIndex < source.getSlots());
+            slotIndex = (slotIndex + 1) % slots;
+        }
 
         return null;
     }
 
-    private void update(FluidNetwork network, IFluidHandler source) {
+    private boolean update(FluidNetwork network, IFluidHandler source) {
         FluidStack drained = source.drain(type.getFluidsToExtract(), IFluidHandler.FluidAction.SIMULATE);
         if (drained.isEmpty()) {
-            return;
+            return false;
         }
 
         if (!acceptsFluid(drained)) {
-            return;
+            return false;
         }
 
         int filled = network.getFluidTank().fill(drained, IFluidHandler.FluidAction.SIMULATE);
         if (filled <= 0) {
-            return;
+            waitingForDestination = true;
+            return false;
         }
 
         int toDrain = Math.min(type.getFluidsToExtract(), filled);
@@ -212,75 +356,33 @@ public class ExtractorAttachment extends Attachment {
         network.getFluidTank().fill(drained, IFluidHandler.FluidAction.EXECUTE);
 
         NetworkManager.get(pipe.getLevel()).setDirty();
+
+        return !drained.isEmpty();
     }
 
     private boolean acceptsItem(ItemStack stack) {
-        if (blacklistWhitelist == BlacklistWhitelist.WHITELIST) {
-            for (int i = 0; i < itemFilter.getSlots(); ++i) {
-                ItemStack filtered = itemFilter.getStackInSlot(i);
-
-                boolean equals = filtered.sameItem(stack);
-                if (exactMode) {
-                    equals = equals && ItemStack.tagMatches(filtered, stack);
-                }
-
-                if (equals) {
-                    return true;
-                }
-            }
+        if (itemFilterMatcher == null) {
+            itemFilterMatcher = new ItemFilterMatcher(itemFilter);
+        }
 
-            return false;
+        if (blacklistWhitelist == BlacklistWhitelist.WHITELIST) {
+            return itemFilterMatcher.matches(stack, exactMode);
         } else if (blacklistWhitelist == BlacklistWhitelist.BLACKLIST) {
-            for (int i = 0; i < itemFilter.getSlots(); ++i) {
-                ItemStack filtered = itemFilter.getStackInSlot(i);
-
-                boolean equals = filtered.sameItem(stack);
-                if (exactMode) {
-                    equals = equals && ItemStack.tagMatches(filtered, stack);
-                }
-
-                if (equals) {
-                    return false;
-                }
-            }
-
-            return true;
+            return !itemFilterMatcher.matches(stack, exactMode);
         }
 
         return false;
     }
 
     private boolean acceptsFluid(FluidStack stack) {
-        if (blacklistWhitelist == BlacklistWhitelist.WHITELIST) {
-            for (int i = 0; i < fluidFilter.getSlots(); ++i) {
-                FluidStack filtered = fluidFilter.getFluid(i);
-
-                boolean equals = filtered.getFluid() == stack.getFluid();
-                if (exactMode) {
-                    equals = equals && FluidStack.areFluidStackTagsEqual(filtered, stack);
-                }
-
-                if (equals) {
-                    return true;
-                }
-            }
+        if (fluidFilterMatcher == null) {
+            fluidFilterMatcher = new FluidFilterMatcher(fluidFilter);
+        }
 
-            return false;
+        if (blacklistWhitelist == BlacklistWhitelist.WHITELIST) {
+            return fluidFilterMatcher.matches(stack, exactMode);
         } else if (blacklistWhitelist == BlacklistWhitelist.BLACKLIST) {
-            for (int i = 0; i < fluidFilter.getSlots(); ++i) {
-                FluidStack filtered = fluidFilter.getFluid(i);
-
-                boolean equals = filtered.getFluid() == stack.getFluid();
-                if (exactMode) {
-                    equals = equals && FluidStack.areFluidStackTagsEqual(filtered, stack);
-                }
-
-                if (equals) {
-                    return false;
-                }
-            }
-
-            return true;
+            return !fluidFilterMatcher.matches(stack, exactMode);
         }
 
         return false;
@@ -309,6 +411,7 @@ public class ExtractorAttachment extends Attachment {
         tag.put("itemfilter", itemFilter.serializeNBT());
         tag.putByte("bw", (byte) blacklistWhitelist.ordinal());
         tag.putInt("rr", itemDestinationFinder.getRoundRobinIndex());
+        tag.putInt("slot", slotIndex);
         tag.putByte("routingm", (byte) routingMode.ordinal());
         tag.putInt("stacksi", stackSize);
         tag.putBoolean("exa", exactMode);
@@ -385,6 +488,10 @@ public class ExtractorAttachment extends Attachment {
         itemDestinationFinder.setRoundRobinIndex(roundRobinIndex);
     }
 
+    public void setSlotIndex(int slotIndex) {
+        this.slotIndex = Math.max(0, slotIndex);
+    }
+
     public boolean isExactMode() {
         return exactMode;
     }
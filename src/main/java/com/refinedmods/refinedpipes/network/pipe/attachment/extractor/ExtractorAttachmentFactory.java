@@ -47,6 +47,10 @@ public class ExtractorAttachmentFactory implements AttachmentFactory {
             attachment.setRoundRobinIndex(tag.getInt("rr"));
         }
 
+        if (tag.contains("slot")) {
+            attachment.setSlotIndex(tag.getInt("slot"));
+        }
+
         if (tag.contains("routingm")) {
             attachment.setRoutingMode(RoutingMode.get(tag.getByte("routingm")));
         }
@@ -45,6 +45,10 @@ public enum ExtractorAttachmentType {
         return getConfig().getItemsToExtract();
     }
 
+    public int getStacksToExtract() {
+        return getConfig().getStacksToExtract();
+    }
+
     int getFluidsToExtract() {
         return getConfig().getFluidsToExtract();
     }
@@ -0,0 +1,53 @@
+package com.refinedmods.refinedpipes.network.pipe.attachment.extractor;
+
+import com.refinedmods.refinedpipes.inventory.fluid.FluidInventory;
+import net.minecraft.world.level.material.Fluid;
+import net.minecraftforge.fluids.FluidStack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class FluidFilterMatcher {
+    private final Map<Fluid, Map<Integer, List<FluidStack>>> filtersByFluid = new HashMap<>();
+
+    public FluidFilterMatcher(FluidInventory filter) {
+        for (int i = 0; i < filter.getSlots(); ++i) {
+            FluidStack filtered = filter.getFluid(i);
+            if (filtered.isEmpty()) {
+                continue;
+            }
+
+            filtersByFluid
+                .computeIfAbsent(filtered.getFluid(), fluid -> new HashMap<>())
+                .computeIfAbsent(Objects.hashCode(filtered.getTag()), hash -> new ArrayList<>())
+                .add(filtered.copy());
+        }
+    }
+
+    public boolean matches(FluidStack stack, boolean exactMode) {
+        Map<Integer, List<FluidStack>> filtersByTagHash = filtersByFluid.get(stack.getFluid());
+        if (filtersByTagHash == null) {
+            return false;
+        }
+
+        if (!exactMode) {
+            return true;
+        }
+
+        List<FluidStack> filters = filtersByTagHash.get(Objects.hashCode(stack.getTag()));
+        if (filters == null) {
+            return false;
+        }
+
+        for (FluidStack filtered : filters) {
+            if (FluidStack.areFluidStackTagsEqual(filtered, stack)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -1,102 +1,173 @@
 package com.refinedmods.refinedpipes.network.pipe.attachment.extractor;
 
 import com.refinedmods.refinedpipes.network.item.ItemNetwork;
+import com.refinedmods.refinedpipes.network.item.routing.DestinationPathCache;
 import com.refinedmods.refinedpipes.network.pipe.Destination;
 import com.refinedmods.refinedpipes.network.pipe.DestinationType;
 import com.refinedmods.refinedpipes.network.pipe.attachment.Attachment;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.item.ItemStack;
-import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraftforge.items.CapabilityItemHandler;
-import net.minecraftforge.items.IItemHandler;
-import net.minecraftforge.items.ItemHandlerHelper;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 
 public class ItemDestinationFinder {
     private final Attachment attachment;
     private int roundRobinIndex;
+    private boolean resultIsCacheable;
+    private int[] randomOrder = new int[0];
+    private List<Pair<Destination, Integer>> balancedSplit = Collections.emptyList();
 
     public ItemDestinationFinder(Attachment attachment) {
         this.attachment = attachment;
     }
 
     public Destination find(RoutingMode routingMode, BlockPos sourcePos, ItemStack extracted) {
+        if (!(attachment.getPipe().getNetwork() instanceof ItemNetwork)) {
+            return null;
+        }
+
         ItemNetwork network = (ItemNetwork) attachment.getPipe().getNetwork();
+        long gameTime = attachment.getPipe().getLevel().getGameTime();
+
+        // Balanced routing also uses destinations that only accept part of the stack.
+        boolean useCache = routingMode != RoutingMode.BALANCED;
+
+        if (useCache && network.getNoDestinationCache().hasNoDestination(extracted, gameTime)) {
+            return null;
+        }
 
+        resultIsCacheable = useCache;
+
+        Destination destination = find(network, routingMode, sourcePos, extracted);
+        if (destination == null && resultIsCacheable) {
+            network.getNoDestinationCache().add(extracted, gameTime);
+        }
+
+        return destination;
+    }
+
+    private Destination find(ItemNetwork network, RoutingMode routingMode, BlockPos sourcePos, ItemStack extracted) {
         switch (routingMode) {
             case NEAREST:
                 return network.getDestinationPathCache()
-                    .findNearestDestination(attachment.getPipe().getPos(), d -> isDestinationApplicable(sourcePos, extracted, d));
+                    .findNearestDestination(attachment.getPipe().getPos(), d -> isDestinationApplicable(network, sourcePos, extracted, d));
             case FURTHEST:
                 return network.getDestinationPathCache()
-                    .findFurthestDestination(attachment.getPipe().getPos(), d -> isDestinationApplicable(sourcePos, extracted, d));
+                    .findFurthestDestination(attachment.getPipe().getPos(), d -> isDestinationApplicable(network, sourcePos, extracted, d));
             case RANDOM: {
-                List<Destination> destinations = new ArrayList<>(network.getDestinations(DestinationType.ITEM_HANDLER));
+                List<Destination> destinations = network.getDestinations(DestinationType.ITEM_HANDLER);
+
+                int size = destinations.size();
+                if (randomOrder.length != size) {
+                    randomOrder = new int[size];
+                    for (int i = 0; i < size; ++i) {
+                        randomOrder[i] = i;
+                    }
+                }
+
+                Random random = attachment.getPipe().getLevel().getRandom();
 
-                while (!destinations.isEmpty()) {
-                    int randomIndex = attachment.getPipe().getLevel().getRandom().nextInt(destinations.size());
-                    Destination randomDestination = destinations.get(randomIndex);
+                // Shuffle only as far as needed, any permutation is a valid start for the next shuffle.
+                for (int i = 0; i < size; ++i) {
+                    int j = i + random.nextInt(size - i);
 
-                    if (isDestinationApplicable(sourcePos, extracted, randomDestination)) {
+                    int destinationIndex = randomOrder[j];
+                    randomOrder[j] = randomOrder[i];
+                    randomOrder[i] = destinationIndex;
+
+                    Destination randomDestination = destinations.get(destinationIndex);
+                    if (isDestinationApplicable(network, sourcePos, extracted, randomDestination)) {
                         return randomDestination;
                     }
-
-                    destinations.remove(randomIndex);
                 }
 
                 return null;
             }
             case ROUND_ROBIN: {
                 List<Destination> destinations = network.getDestinations(DestinationType.ITEM_HANDLER);
-                if (destinations.isEmpty()) {
-                    return null;
-                }
 
-                if (roundRobinIndex >= destinations.size()) {
+                int size = destinations.size();
+                if (roundRobinIndex >= size) {
                     roundRobinIndex = 0;
                 }
 
-                while (true) {
-                    Destination dest = destinations.get(roundRobinIndex);
+                for (int i = 0; i < size; ++i) {
+                    int destinationIndex = (roundRobinIndex + i) % size;
 
-                    if (isDestinationApplicable(sourcePos, extracted, dest)) {
-                        roundRobinIndex++;
+                    Destination dest = destinations.get(destinationIndex);
+                    if (isDestinationApplicable(network, sourcePos, extracted, dest)) {
+                        roundRobinIndex = destinationIndex + 1;
                         return dest;
-                    } else {
-                        roundRobinIndex++;
-                        if (roundRobinIndex >= destinations.size()) {
-                            break;
-                        }
                     }
                 }
 
                 return null;
             }
+            case BALANCED: {
+                balancedSplit = split(network, sourcePos, extracted);
+
+                return balancedSplit.isEmpty() ? null : balancedSplit.get(0).getLeft();
+            }
             default:
                 throw new RuntimeException("?");
         }
     }
 
-    private boolean isDestinationApplicable(BlockPos sourcePos, ItemStack extracted, Destination destination) {
-        BlockEntity blockEntity = destination.getConnectedPipe().getLevel().getBlockEntity(destination.getReceiver());
-        if (blockEntity == null) {
-            return false;
+    // Spreads the stack evenly over the destinations that can take part of it, destinations with less space get less.
+    private List<Pair<Destination, Integer>> split(ItemNetwork network, BlockPos sourcePos, ItemStack extracted) {
+        DestinationPathCache destinationPathCache = network.getDestinationPathCache();
+
+        List<Pair<Destination, Integer>> insertableAmounts = new ArrayList<>();
+        for (Destination destination : network.getDestinations(DestinationType.ITEM_HANDLER)) {
+            if (isSource(destination, sourcePos) || destinationPathCache.getPath(attachment.getPipe().getPos(), destination) == null) {
+                continue;
+            }
+
+            int insertableAmount = network.getInsertableAmount(destination, extracted);
+            if (insertableAmount > 0) {
+                insertableAmounts.add(Pair.of(destination, insertableAmount));
+            }
         }
 
-        IItemHandler handler = blockEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, destination.getIncomingDirection().getOpposite()).orElse(null);
-        if (handler == null) {
-            return false;
+        insertableAmounts.sort(Comparator.comparingInt(Pair::getRight));
+
+        List<Pair<Destination, Integer>> split = new ArrayList<>();
+
+        int remaining = extracted.getCount();
+        for (int i = 0; i < insertableAmounts.size() && remaining > 0; ++i) {
+            int destinationsLeft = insertableAmounts.size() - i;
+            int amount = Math.min(insertableAmounts.get(i).getRight(), (remaining + destinationsLeft - 1) / destinationsLeft);
+
+            split.add(Pair.of(insertableAmounts.get(i).getLeft(), amount));
+            remaining -= amount;
         }
 
+        return split;
+    }
+
+    public List<Pair<Destination, Integer>> getBalancedSplit() {
+        return balancedSplit;
+    }
+
+    private boolean isSource(Destination destination, BlockPos sourcePos) {
         // Avoid extractions that lead back to the source pos through the same pipe.
         // Only if the incoming direction is different, then we'll allow it.
         if (destination.getReceiver().equals(sourcePos) && destination.getIncomingDirection() == attachment.getDirection()) {
-            return false;
+            // Other extractors don't skip this destination.
+            resultIsCacheable = false;
+            return true;
         }
 
-        return ItemHandlerHelper.insertItem(handler, extracted, true).isEmpty();
+        return false;
+    }
+
+    private boolean isDestinationApplicable(ItemNetwork network, BlockPos sourcePos, ItemStack extracted, Destination destination) {
+        return !isSource(destination, sourcePos) && network.canInsert(destination, extracted);
     }
 
     public int getRoundRobinIndex() {
@@ -0,0 +1,53 @@
+package com.refinedmods.refinedpipes.network.pipe.attachment.extractor;
+
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.items.IItemHandler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class ItemFilterMatcher {
+    private final Map<Item, Map<Integer, List<ItemStack>>> filtersByItem = new HashMap<>();
+
+    public ItemFilterMatcher(IItemHandler filter) {
+        for (int i = 0; i < filter.getSlots(); ++i) {
+            ItemStack filtered = filter.getStackInSlot(i);
+            if (filtered.isEmpty()) {
+                continue;
+            }
+
+            filtersByItem
+                .computeIfAbsent(filtered.getItem(), item -> new HashMap<>())
+                .computeIfAbsent(Objects.hashCode(filtered.getTag()), hash -> new ArrayList<>())
+                .add(filtered.copy());
+        }
+    }
+
+    public boolean matches(ItemStack stack, boolean exactMode) {
+        Map<Integer, List<ItemStack>> filtersByTagHash = filtersByItem.get(stack.getItem());
+        if (filtersByTagHash == null) {
+            return false;
+        }
+
+        if (!exactMode) {
+            return true;
+        }
+
+        List<ItemStack> filters = filtersByTagHash.get(Objects.hashCode(stack.getTag()));
+        if (filters == null) {
+            return false;
+        }
+
+        for (ItemStack filtered : filters) {
+            if (ItemStack.tagMatches(filtered, stack)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
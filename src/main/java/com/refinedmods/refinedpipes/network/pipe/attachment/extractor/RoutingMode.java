@@ -4,7 +4,8 @@ public enum RoutingMode {
     NEAREST,
     FURTHEST,
     RANDOM,
-    ROUND_ROBIN;
+    ROUND_ROBIN,
+    BALANCED;
 
     public static RoutingMode get(byte b) {
         RoutingMode[] m = values();
@@ -25,6 +26,8 @@ public enum RoutingMode {
             case RANDOM:
                 return ROUND_ROBIN;
             case ROUND_ROBIN:
+                return BALANCED;
+            case BALANCED:
             default:
                 return NEAREST;
         }
@@ -3,6 +3,7 @@ package com.refinedmods.refinedpipes.network.pipe.item;
 import com.refinedmods.refinedpipes.RefinedPipes;
 import com.refinedmods.refinedpipes.message.ItemTransportMessage;
 import com.refinedmods.refinedpipes.network.NetworkManager;
+import com.refinedmods.refinedpipes.network.item.ItemKey;
 import com.refinedmods.refinedpipes.network.item.ItemNetwork;
 import com.refinedmods.refinedpipes.network.pipe.Pipe;
 import com.refinedmods.refinedpipes.network.pipe.transport.ItemTransport;
@@ -12,9 +13,13 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.Level;
+import net.minecraftforge.items.ItemHandlerHelper;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class ItemPipe extends Pipe {
     public static final ResourceLocation ID = new ResourceLocation(RefinedPipes.ID, "item");
@@ -36,20 +41,30 @@ public class ItemPipe extends Pipe {
         transports.addAll(transportsToAdd);
         transports.removeAll(transportsToRemove);
 
-        if (!transportsToAdd.isEmpty() || !transportsToRemove.isEmpty()) {
-            NetworkManager.get(level).setDirty();
+        boolean changed = !transportsToAdd.isEmpty() || !transportsToRemove.isEmpty();
+        if (changed) {
             sendTransportUpdate();
         }
 
-        if (!transports.isEmpty()) {
-            NetworkManager.get(level).setDirty();
+        // Transports move every tick, so a pipe with transports always has something new to save.
+        if (changed || !transports.isEmpty()) {
+            NetworkManager.get(level).markDirty(pos);
         }
 
         transportsToAdd.clear();
         transportsToRemove.clear();
 
-        if (transports.removeIf(t -> t.update(network, this))) {
-            NetworkManager.get(level).setDirty();
+        transports.removeIf(t -> t.update(network, this));
+    }
+
+    @Override
+    public void onUnloaded() {
+        // The transports are saved with the chunk and reserve their destination again when they are loaded.
+        transports.forEach(ItemTransport::releaseReservation);
+        transportsToAdd.forEach(ItemTransport::releaseReservation);
+
+        if (network != null) {
+            ((ItemNetwork) network).onDestinationsChanged();
         }
     }
 
@@ -80,10 +95,38 @@ public class ItemPipe extends Pipe {
 
         tag.putInt("type", type.ordinal());
 
+        return writeTransports(tag, transports);
+    }
+
+    @Override
+    public Supplier<CompoundTag> createSnapshot(CompoundTag tag) {
+        super.writeToNbt(tag);
+
+        tag.putInt("type", type.ordinal());
+
+        List<ItemTransport> transportSnapshots = new ArrayList<>(transports.size());
+        for (ItemTransport transport : transports) {
+            transportSnapshots.add(transport.createSnapshot());
+        }
+
+        return () -> writeTransports(tag, transportSnapshots);
+    }
+
+    private static CompoundTag writeTransports(CompoundTag tag, List<ItemTransport> transportsToWrite) {
+        // Transports of the same item share a single saved stack.
+        ListTag stacks = new ListTag();
+        Map<ItemKey, Integer> stackIndices = new HashMap<>();
+
         ListTag transports = new ListTag();
-        for (ItemTransport transport : this.transports) {
-            transports.add(transport.writeToNbt(new CompoundTag()));
+        for (ItemTransport transport : transportsToWrite) {
+            int stackIndex = stackIndices.computeIfAbsent(ItemKey.lookup(transport.getValue()), key -> {
+                stacks.add(ItemHandlerHelper.copyStackWithSize(transport.getValue(), 1).save(new CompoundTag()));
+                return stacks.size() - 1;
+            });
+
+            transports.add(transport.writeToNbt(new CompoundTag(), stackIndex));
         }
+        tag.put("stacks", stacks);
         tag.put("transports", transports);
 
         return tag;
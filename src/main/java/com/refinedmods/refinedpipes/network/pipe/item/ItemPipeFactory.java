@@ -7,8 +7,12 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.Tag;
+import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ItemPipeFactory implements PipeFactory {
     @Override
     public Pipe createFromNbt(Level level, CompoundTag tag) {
@@ -20,11 +24,17 @@ public class ItemPipeFactory implements PipeFactory {
 
         pipe.getAttachmentManager().readFromNbt(tag);
 
+        List<ItemStack> stacks = new ArrayList<>();
+        ListTag stacksTag = tag.getList("stacks", Tag.TAG_COMPOUND);
+        for (int i = 0; i < stacksTag.size(); ++i) {
+            stacks.add(ItemStack.of(stacksTag.getCompound(i)));
+        }
+
         ListTag transports = tag.getList("transports", Tag.TAG_COMPOUND);
         for (int i = 0; i < transports.size(); ++i) {
             CompoundTag transportTag = transports.getCompound(i);
 
-            ItemTransport itemTransport = ItemTransport.of(transportTag);
+            ItemTransport itemTransport = ItemTransport.of(transportTag, stacks);
             if (itemTransport != null) {
                 pipe.getTransports().add(itemTransport);
             }
@@ -1,11 +1,19 @@
 package com.refinedmods.refinedpipes.network.pipe.transport;
 
 import com.refinedmods.refinedpipes.network.Network;
+import com.refinedmods.refinedpipes.network.NetworkManager;
+import com.refinedmods.refinedpipes.network.item.ItemNetwork;
+import com.refinedmods.refinedpipes.network.item.reservation.Reservation;
+import com.refinedmods.refinedpipes.network.item.reservation.ReservationLedger;
+import com.refinedmods.refinedpipes.network.pipe.Destination;
+import com.refinedmods.refinedpipes.network.pipe.DestinationType;
 import com.refinedmods.refinedpipes.network.pipe.Pipe;
 import com.refinedmods.refinedpipes.network.pipe.item.ItemPipe;
+import com.refinedmods.refinedpipes.network.pipe.transport.callback.ItemBounceBackTransportCallback;
+import com.refinedmods.refinedpipes.network.pipe.transport.callback.ItemInsertTransportCallback;
+import com.refinedmods.refinedpipes.network.pipe.transport.callback.ItemPipeGoneTransportCallback;
 import com.refinedmods.refinedpipes.network.pipe.transport.callback.TransportCallback;
-import com.refinedmods.refinedpipes.network.pipe.transport.callback.TransportCallbackFactory;
-import com.refinedmods.refinedpipes.network.pipe.transport.callback.TransportCallbackFactoryRegistry;
+import com.refinedmods.refinedpipes.network.pipe.transport.callback.TransportCallbackRegistry;
 import com.refinedmods.refinedpipes.util.DirectionUtil;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
@@ -16,48 +24,73 @@ import net.minecraft.nbt.Tag;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
+import net.minecraftforge.items.ItemHandlerHelper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nullable;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.List;
 
 public class ItemTransport {
     private static final Logger LOGGER = LogManager.getLogger(ItemTransport.class);
 
     private final ItemStack value;
-    private final BlockPos source;
     private final BlockPos destination;
+    private final Direction incomingDirection;
     private final Deque<BlockPos> path;
     private final Direction initialDirection;
+    private final BlockPos origin;
+    @Nullable
+    private final Direction originDirection;
+    private final int bounces;
     private final TransportCallback finishedCallback;
     private final TransportCallback cancelCallback;
     private final TransportCallback pipeGoneCallback;
+    @Nullable
+    private Reservation reservation;
+    // Reservations aren't saved, this remembers to reserve again when the transport is loaded.
+    private final boolean reserved;
     private boolean firstPipe = true;
     private int progressInCurrentPipe;
+    @Nullable
+    private Network validatedNetwork;
+    private int validatedTopologyEpoch;
+    @Nullable
+    private BlockPos waitingForChunkAt;
 
-    public ItemTransport(ItemStack value, BlockPos source, BlockPos destination, Deque<BlockPos> path, TransportCallback finishedCallback, TransportCallback cancelCallback, TransportCallback pipeGoneCallback) {
+    public ItemTransport(ItemStack value, BlockPos source, BlockPos destination, Direction incomingDirection, Deque<BlockPos> path, BlockPos origin, @Nullable Direction originDirection, int bounces, TransportCallback finishedCallback, TransportCallback cancelCallback, TransportCallback pipeGoneCallback, @Nullable Reservation reservation) {
         this.value = value;
-        this.source = source;
         this.destination = destination;
+        this.incomingDirection = incomingDirection;
         this.path = path;
         this.initialDirection = getDirection(source, path.peek());
         this.path.poll(); // Pop first pipe.
+        this.origin = origin;
+        this.originDirection = originDirection;
+        this.bounces = bounces;
         this.finishedCallback = finishedCallback;
         this.cancelCallback = cancelCallback;
         this.pipeGoneCallback = pipeGoneCallback;
+        this.reservation = reservation;
+        this.reserved = reservation != null;
     }
 
-    public ItemTransport(ItemStack value, BlockPos source, BlockPos destination, Deque<BlockPos> path, Direction initialDirection, TransportCallback finishedCallback, TransportCallback cancelCallback, TransportCallback pipeGoneCallback, boolean firstPipe, int progressInCurrentPipe) {
+    public ItemTransport(ItemStack value, BlockPos destination, Direction incomingDirection, Deque<BlockPos> path, Direction initialDirection, BlockPos origin, @Nullable Direction originDirection, int bounces, TransportCallback finishedCallback, TransportCallback cancelCallback, TransportCallback pipeGoneCallback, boolean firstPipe, int progressInCurrentPipe, boolean reserved) {
         this.value = value;
-        this.source = source;
         this.destination = destination;
+        this.incomingDirection = incomingDirection;
         this.path = path;
         this.initialDirection = initialDirection;
+        this.origin = origin;
+        this.originDirection = originDirection;
+        this.bounces = bounces;
         this.finishedCallback = finishedCallback;
         this.cancelCallback = cancelCallback;
         this.pipeGoneCallback = pipeGoneCallback;
+        this.reservation = null;
+        this.reserved = reserved;
         this.firstPipe = firstPipe;
         this.progressInCurrentPipe = progressInCurrentPipe;
     }
@@ -91,74 +124,138 @@ public class ItemTransport {
     }
 
     @Nullable
-    public static ItemTransport of(CompoundTag tag) {
-        ItemStack value = ItemStack.of(tag.getCompound("v"));
+    public static ItemTransport of(CompoundTag tag, List<ItemStack> stacks) {
+        ItemStack value;
+        if (tag.contains("v")) {
+            // @BC: transports used to save their own stack.
+            value = ItemStack.of(tag.getCompound("v"));
+        } else {
+            int stackIndex = tag.getInt("s");
+            value = stackIndex < stacks.size() ? ItemHandlerHelper.copyStackWithSize(stacks.get(stackIndex), tag.getInt("c")) : ItemStack.EMPTY;
+        }
+
         if (value.isEmpty()) {
             LOGGER.warn("Item no longer exists");
             return null;
         }
 
-        BlockPos source = BlockPos.of(tag.getLong("src"));
         BlockPos destination = BlockPos.of(tag.getLong("dst"));
 
-        ListTag pathTag = tag.getList("pth", Tag.TAG_LONG);
         Deque<BlockPos> path = new ArrayDeque<>();
-        for (Tag pathItem : pathTag) {
-            path.add(BlockPos.of(((LongTag) pathItem).getAsLong()));
-        }
-
-        Direction initialDirection = DirectionUtil.safeGet((byte) tag.getInt("initd"));
+        if (tag.contains("pth")) {
+            for (Tag pathItem : tag.getList("pth", Tag.TAG_LONG)) {
+                path.add(BlockPos.of(((LongTag) pathItem).getAsLong()));
+            }
+        } else if (tag.contains("ps")) {
+            BlockPos pathItem = BlockPos.of(tag.getLong("ps"));
+            path.add(pathItem);
 
-        ResourceLocation finishedCallbackId = new ResourceLocation(tag.getString("fcid"));
-        TransportCallbackFactory finishedCallbackFactory = TransportCallbackFactoryRegistry.INSTANCE.getFactory(finishedCallbackId);
-        if (finishedCallbackFactory == null) {
-            LOGGER.warn("Finished callback factory " + finishedCallbackId + " no longer exists");
-            return null;
-        }
-        TransportCallback finishedCallback = finishedCallbackFactory.create(tag.getCompound("fc"));
-        if (finishedCallback == null) {
-            LOGGER.warn("Finished callback factory " + finishedCallbackId + " returned null!");
-            return null;
+            for (byte direction : tag.getByteArray("pd")) {
+                pathItem = pathItem.relative(DirectionUtil.safeGet(direction));
+                path.add(pathItem);
+            }
         }
 
-        ResourceLocation cancelCallbackId = new ResourceLocation(tag.getString("ccid"));
-        TransportCallbackFactory cancelCallbackFactory = TransportCallbackFactoryRegistry.INSTANCE.getFactory(cancelCallbackId);
-        if (cancelCallbackFactory == null) {
-            LOGGER.warn("Cancel callback factory " + cancelCallbackId + " no longer exists");
-            return null;
-        }
-        TransportCallback cancelCallback = cancelCallbackFactory.create(tag.getCompound("cc"));
-        if (cancelCallback == null) {
-            LOGGER.warn("Cancel callback factory " + cancelCallbackId + " returned null!");
-            return null;
+        Direction initialDirection = DirectionUtil.safeGet((byte) tag.getInt(tag.contains("initd") ? "initd" : "initiald"));
+
+        Direction incomingDirection;
+        BlockPos origin;
+        Direction originDirection;
+        int bounces;
+        if (tag.contains("incd")) {
+            incomingDirection = DirectionUtil.safeGet((byte) tag.getInt("incd"));
+            origin = BlockPos.of(tag.getLong("org"));
+            originDirection = tag.contains("orgd") ? DirectionUtil.safeGet((byte) tag.getInt("orgd")) : null;
+            bounces = tag.getInt("b");
+        } else {
+            // @BC: transports saved with stateful callbacks kept this context in the callback tags.
+            CompoundTag finishedCallbackTag = tag.getCompound("fc");
+            CompoundTag cancelCallbackTag = tag.getCompound("cc");
+
+            incomingDirection = DirectionUtil.safeGet((byte) finishedCallbackTag.getInt("incdir"));
+            origin = BlockPos.of(cancelCallbackTag.contains("bbihpos") ? cancelCallbackTag.getLong("bbihpos") : tag.getLong("src"));
+            originDirection = cancelCallbackTag.contains("bbdir") ? DirectionUtil.safeGet((byte) cancelCallbackTag.getInt("bbdir")) : null;
+            bounces = cancelCallbackTag.getInt("b");
         }
 
-        ResourceLocation pipeGoneCallbackId = new ResourceLocation(tag.getString("pgcid"));
-        TransportCallbackFactory pipeGoneCallbackFactory = TransportCallbackFactoryRegistry.INSTANCE.getFactory(pipeGoneCallbackId);
-        if (pipeGoneCallbackFactory == null) {
-            LOGGER.warn("Pipe gone callback factory " + pipeGoneCallbackId + " no longer exists");
-            return null;
-        }
-        TransportCallback pipeGoneCallback = pipeGoneCallbackFactory.create(tag.getCompound("pgc"));
-        if (pipeGoneCallback == null) {
-            LOGGER.warn("Pipe gone callback factory " + pipeGoneCallbackId + " returned null!");
-            return null;
+        TransportCallback finishedCallback = ItemInsertTransportCallback.INSTANCE;
+        TransportCallback cancelCallback = ItemBounceBackTransportCallback.INSTANCE;
+        TransportCallback pipeGoneCallback = ItemPipeGoneTransportCallback.INSTANCE;
+        if (tag.contains("fcid")) {
+            finishedCallback = getCallback(tag.getString("fcid"), "Finished");
+            cancelCallback = getCallback(tag.getString("ccid"), "Cancel");
+            pipeGoneCallback = getCallback(tag.getString("pgcid"), "Pipe gone");
+            if (finishedCallback == null || cancelCallback == null || pipeGoneCallback == null) {
+                return null;
+            }
         }
 
         boolean firstPipe = tag.getBoolean("fp");
         int progressInCurrentPipe = tag.getInt("p");
+        boolean reserved = tag.getBoolean("r");
 
         return new ItemTransport(
             value,
-            source,
             destination,
+            incomingDirection,
             path,
             initialDirection,
+            origin,
+            originDirection,
+            bounces,
+            finishedCallback,
+            cancelCallback,
+            pipeGoneCallback,
+            firstPipe,
+            progressInCurrentPipe,
+            reserved
+        );
+    }
+
+    @Nullable
+    private static TransportCallback getCallback(String id, String name) {
+        TransportCallback callback = TransportCallbackRegistry.INSTANCE.getCallback(new ResourceLocation(id));
+        if (callback == null) {
+            LOGGER.warn(name + " callback " + id + " no longer exists");
+        }
+
+        return callback;
+    }
+
+    // Detached copy that can be written while this transport keeps moving.
+    public ItemTransport createSnapshot() {
+        return new ItemTransport(
+            value.copy(),
+            destination,
+            incomingDirection,
+            new ArrayDeque<>(path),
+            initialDirection,
+            origin,
+            originDirection,
+            bounces,
             finishedCallback,
             cancelCallback,
             pipeGoneCallback,
             firstPipe,
-            progressInCurrentPipe
+            progressInCurrentPipe,
+            reserved
+        );
+    }
+
+    public ItemTransport bounce(BlockPos newDestination, Direction newIncomingDirection, Deque<BlockPos> newPath, @Nullable Reservation newReservation) {
+        return new ItemTransport(
+            value,
+            destination,
+            newDestination,
+            newIncomingDirection,
+            newPath,
+            origin,
+            originDirection,
+            bounces + 1,
+            finishedCallback,
+            cancelCallback,
+            pipeGoneCallback,
+            newReservation
         );
     }
 
@@ -166,6 +263,27 @@ public class ItemTransport {
         return value;
     }
 
+    public BlockPos getDestination() {
+        return destination;
+    }
+
+    public Direction getIncomingDirection() {
+        return incomingDirection;
+    }
+
+    public BlockPos getOrigin() {
+        return origin;
+    }
+
+    @Nullable
+    public Direction getOriginDirection() {
+        return originDirection;
+    }
+
+    public int getBounces() {
+        return bounces;
+    }
+
     public Direction getDirection(ItemPipe currentPipe) {
         BlockPos nextPipe = path.peek();
 
@@ -176,28 +294,99 @@ public class ItemTransport {
         return getDirection(currentPipe.getPos(), nextPipe);
     }
 
+    @Nullable
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    public void releaseReservation() {
+        if (reservation != null) {
+            reservation.release();
+        }
+    }
+
+    // Restores the reservation of a loaded transport, or moves it along when the transport ends up in another network.
+    private void updateReservation(Network network) {
+        if (!reserved || !(network instanceof ItemNetwork)) {
+            return;
+        }
+
+        ReservationLedger ledger = ((ItemNetwork) network).getReservationLedger();
+        if (reservation != null) {
+            ledger.adopt(reservation);
+            return;
+        }
+
+        for (Destination candidate : network.getDestinations(DestinationType.ITEM_HANDLER)) {
+            if (candidate.getReceiver().equals(destination) && candidate.getIncomingDirection() == incomingDirection) {
+                reservation = ledger.reserve(candidate, value);
+                return;
+            }
+        }
+    }
+
+    private void cancelReservation(Network network) {
+        if (reservation != null && !reservation.isReleased()) {
+            reservation.release();
+
+            // The space reserved for this transport is free again.
+            if (network instanceof ItemNetwork) {
+                ((ItemNetwork) network).onDestinationsChanged();
+            }
+        }
+    }
+
+    public void cancel(Network network, Level level, BlockPos currentPos) {
+        cancelReservation(network);
+        cancelCallback.call(network, level, currentPos, this);
+    }
+
     private boolean onDone(Network network, Level level, ItemPipe currentPipe) {
-        finishedCallback.call(network, level, currentPipe.getPos(), cancelCallback);
+        finishedCallback.call(network, level, currentPipe.getPos(), this);
         return true;
     }
 
     private boolean onPipeGone(Network network, Level level, BlockPos posWherePipeIsGone) {
         LOGGER.warn("Pipe on path is gone");
-        pipeGoneCallback.call(network, level, posWherePipeIsGone, cancelCallback);
+        cancelReservation(network);
+        pipeGoneCallback.call(network, level, posWherePipeIsGone, this);
         return true;
     }
 
     public boolean update(Network network, ItemPipe currentPipe) {
-        progressInCurrentPipe += 1;
+        if (waitingForChunkAt != null) {
+            // Only check the path again once the network changed or the missing part is loaded.
+            if (validatedNetwork == network && validatedTopologyEpoch == network.getTopologyEpoch() && !currentPipe.getLevel().isLoaded(waitingForChunkAt)) {
+                return false;
+            }
 
-        double progress = (double) progressInCurrentPipe / (double) getMaxTicksInPipe(currentPipe);
+            waitingForChunkAt = null;
+            validatedNetwork = null;
+        }
 
-        BlockPos nextPos = currentPipe.getPos().relative(getDirection(currentPipe));
-        if (progress > 0.25 && currentPipe.getLevel().isEmptyBlock(nextPos)) {
-            currentPipe.removeTransport(this);
-            return onPipeGone(network, currentPipe.getLevel(), nextPos);
+        if (validatedNetwork != network || validatedTopologyEpoch != network.getTopologyEpoch()) {
+            BlockPos posWherePipeIsGone = findPosWherePipeIsGone(network, currentPipe.getLevel());
+            if (posWherePipeIsGone != null && !currentPipe.getLevel().isLoaded(posWherePipeIsGone)) {
+                // Wait until the rest of the path is loaded again.
+                waitingForChunkAt = posWherePipeIsGone;
+                validatedNetwork = network;
+                validatedTopologyEpoch = network.getTopologyEpoch();
+                return false;
+            }
+
+            if (posWherePipeIsGone != null) {
+                currentPipe.removeTransport(this);
+                return onPipeGone(network, currentPipe.getLevel(), posWherePipeIsGone);
+            }
+
+            validatedNetwork = network;
+            validatedTopologyEpoch = network.getTopologyEpoch();
+
+            updateReservation(network);
         }
 
+        progressInCurrentPipe += 1;
+
         if (progressInCurrentPipe >= getMaxTicksInPipe(currentPipe)) {
             currentPipe.removeTransport(this);
             firstPipe = false;
@@ -207,8 +396,8 @@ public class ItemTransport {
                 return onDone(network, currentPipe.getLevel(), currentPipe);
             }
 
-            Pipe nextPipe = network.getPipe(nextPipePos);
-            if (nextPipe == null) {
+            Pipe nextPipe = NetworkManager.get(currentPipe.getLevel()).getPipe(nextPipePos);
+            if (!(nextPipe instanceof ItemPipe)) {
                 return onPipeGone(network, currentPipe.getLevel(), nextPipePos);
             }
 
@@ -219,6 +408,20 @@ public class ItemTransport {
         return false;
     }
 
+    @Nullable
+    private BlockPos findPosWherePipeIsGone(Network network, Level level) {
+        NetworkManager networkManager = NetworkManager.get(level);
+
+        for (BlockPos pos : path) {
+            Pipe pipe = networkManager.getPipe(pos);
+            if (!(pipe instanceof ItemPipe) || pipe.getNetwork() != network) {
+                return pos;
+            }
+        }
+
+        return null;
+    }
+
     private boolean isLastPipe() {
         return path.isEmpty();
     }
@@ -249,29 +452,87 @@ public class ItemTransport {
         );
     }
 
-    public CompoundTag writeToNbt(CompoundTag tag) {
-        tag.put("v", value.save(new CompoundTag()));
-        tag.putLong("src", source.asLong());
+    public CompoundTag writeToNbt(CompoundTag tag, int stackIndex) {
+        tag.putInt("s", stackIndex);
+        tag.putInt("c", value.getCount());
         tag.putLong("dst", destination.asLong());
+        tag.putByte("incd", (byte) incomingDirection.ordinal());
 
-        ListTag path = new ListTag();
-        for (BlockPos pathItem : this.path) {
-            path.add(LongTag.valueOf(pathItem.asLong()));
-        }
-        tag.put("pth", path);
+        writePath(tag);
 
-        tag.putInt("initiald", initialDirection.ordinal());
+        tag.putByte("initd", (byte) initialDirection.ordinal());
 
-        tag.put("fc", finishedCallback.writeToNbt(new CompoundTag()));
-        tag.putString("fcid", finishedCallback.getId().toString());
-        tag.put("cc", cancelCallback.writeToNbt(new CompoundTag()));
-        tag.putString("ccid", cancelCallback.getId().toString());
-        tag.put("pgc", pipeGoneCallback.writeToNbt(new CompoundTag()));
-        tag.putString("pgcid", pipeGoneCallback.getId().toString());
+        tag.putLong("org", origin.asLong());
+        if (originDirection != null) {
+            tag.putByte("orgd", (byte) originDirection.ordinal());
+        }
+        if (bounces > 0) {
+            tag.putInt("b", bounces);
+        }
+
+        if (finishedCallback != ItemInsertTransportCallback.INSTANCE
+            || cancelCallback != ItemBounceBackTransportCallback.INSTANCE
+            || pipeGoneCallback != ItemPipeGoneTransportCallback.INSTANCE) {
+            tag.putString("fcid", finishedCallback.getId().toString());
+            tag.putString("ccid", cancelCallback.getId().toString());
+            tag.putString("pgcid", pipeGoneCallback.getId().toString());
+        }
 
-        tag.putBoolean("fp", firstPipe);
+        if (firstPipe) {
+            tag.putBoolean("fp", true);
+        }
+        if (reserved) {
+            tag.putBoolean("r", true);
+        }
         tag.putInt("p", progressInCurrentPipe);
 
         return tag;
     }
+
+    private void writePath(CompoundTag tag) {
+        BlockPos start = path.peek();
+        if (start == null) {
+            return;
+        }
+
+        byte[] directions = new byte[path.size() - 1];
+        int i = 0;
+
+        BlockPos previous = null;
+        for (BlockPos pathItem : path) {
+            if (previous != null) {
+                Direction direction = getAdjacentDirection(previous, pathItem);
+                if (direction == null) {
+                    writePathAsPositions(tag);
+                    return;
+                }
+
+                directions[i++] = (byte) direction.ordinal();
+            }
+
+            previous = pathItem;
+        }
+
+        tag.putLong("ps", start.asLong());
+        tag.putByteArray("pd", directions);
+    }
+
+    private void writePathAsPositions(CompoundTag tag) {
+        ListTag positions = new ListTag();
+        for (BlockPos pathItem : path) {
+            positions.add(LongTag.valueOf(pathItem.asLong()));
+        }
+        tag.put("pth", positions);
+    }
+
+    @Nullable
+    private static Direction getAdjacentDirection(BlockPos a, BlockPos b) {
+        for (Direction direction : Direction.values()) {
+            if (a.relative(direction).equals(b)) {
+                return direction;
+            }
+        }
+
+        return null;
+    }
 }
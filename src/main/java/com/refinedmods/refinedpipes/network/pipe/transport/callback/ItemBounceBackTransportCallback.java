@@ -2,61 +2,111 @@ package com.refinedmods.refinedpipes.network.pipe.transport.callback;
 
 import com.refinedmods.refinedpipes.RefinedPipes;
 import com.refinedmods.refinedpipes.network.Network;
+import com.refinedmods.refinedpipes.network.NetworkManager;
+import com.refinedmods.refinedpipes.network.item.ItemNetwork;
+import com.refinedmods.refinedpipes.network.item.routing.DestinationPathCache;
+import com.refinedmods.refinedpipes.network.pipe.Destination;
+import com.refinedmods.refinedpipes.network.pipe.Pipe;
+import com.refinedmods.refinedpipes.network.pipe.item.ItemPipe;
+import com.refinedmods.refinedpipes.network.pipe.transport.ItemTransport;
+import com.refinedmods.refinedpipes.routing.Path;
 import net.minecraft.core.BlockPos;
-import net.minecraft.nbt.CompoundTag;
+import net.minecraft.core.Direction;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.Containers;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-
-import javax.annotation.Nullable;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraftforge.items.CapabilityItemHandler;
+import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.ItemHandlerHelper;
 
 public class ItemBounceBackTransportCallback implements TransportCallback {
     public static final ResourceLocation ID = new ResourceLocation(RefinedPipes.ID, "item_bounce_back");
-    private static final Logger LOGGER = LogManager.getLogger(ItemBounceBackTransportCallback.class);
-    private final BlockPos originalItemHandlerPosition;
-    private final BlockPos bounceBackItemHandlerPosition;
-    private final ItemStack toInsert;
-
-    public ItemBounceBackTransportCallback(BlockPos originalItemHandlerPosition, BlockPos bounceBackItemHandlerPosition, ItemStack toInsert) {
-        this.originalItemHandlerPosition = originalItemHandlerPosition;
-        this.bounceBackItemHandlerPosition = bounceBackItemHandlerPosition;
-        this.toInsert = toInsert;
+    public static final ItemBounceBackTransportCallback INSTANCE = new ItemBounceBackTransportCallback();
+
+    private ItemBounceBackTransportCallback() {
+    }
+
+    @Override
+    public void call(Network network, Level level, BlockPos currentPos, ItemTransport transport) {
+        if (transport.getBounces() < RefinedPipes.SERVER_CONFIG.getMaxItemBounces()
+            && network instanceof ItemNetwork
+            && bounceBack((ItemNetwork) network, level, currentPos, transport)) {
+            return;
+        }
+
+        BlockPos dropPos = transport.getDestination();
+        Containers.dropItemStack(level, dropPos.getX(), dropPos.getY(), dropPos.getZ(), transport.getValue());
     }
 
-    @Nullable
-    public static ItemBounceBackTransportCallback of(CompoundTag tag) {
-        BlockPos originalItemHandlerPosition = BlockPos.of(tag.getLong("oihpos"));
-        BlockPos bounceBackItemHandlerPosition = BlockPos.of(tag.getLong("bbihpos"));
-        ItemStack toInsert = ItemStack.of(tag.getCompound("s"));
+    private boolean bounceBack(ItemNetwork network, Level level, BlockPos currentPos, ItemTransport transport) {
+        Pipe currentPipe = NetworkManager.get(level).getPipe(currentPos);
+        if (!(currentPipe instanceof ItemPipe) || currentPipe.getNetwork() != network) {
+            return false;
+        }
+
+        ItemStack toInsert = transport.getValue();
+        DestinationPathCache destinationPathCache = network.getDestinationPathCache();
+
+        Destination destination = destinationPathCache.findNearestDestination(currentPos, d -> !isOriginalDestination(d, currentPos, transport) && network.canInsert(d, toInsert));
+        if (destination != null) {
+            Path<BlockPos> path = destinationPathCache.getPath(currentPos, destination);
+
+            if (path != null) {
+                ((ItemPipe) currentPipe).addTransport(transport.bounce(
+                    destination.getReceiver(),
+                    destination.getIncomingDirection(),
+                    path.toQueue(),
+                    network.getReservationLedger().reserve(destination, toInsert)
+                ));
+
+                return true;
+            }
+        }
+
+        Direction originDirection = transport.getOriginDirection();
+        if (originDirection == null || !canInsertIntoOrigin(level, transport)) {
+            return false;
+        }
+
+        BlockPos originPipePos = transport.getOrigin().relative(originDirection.getOpposite());
 
-        if (toInsert.isEmpty()) {
-            LOGGER.warn("Item no longer exists");
-            return null;
+        Path<BlockPos> path = destinationPathCache.getPathBetweenPipes(currentPos, originPipePos);
+        if (path == null) {
+            return false;
         }
 
-        return new ItemBounceBackTransportCallback(originalItemHandlerPosition, bounceBackItemHandlerPosition, toInsert);
+        ((ItemPipe) currentPipe).addTransport(transport.bounce(
+            transport.getOrigin(),
+            originDirection,
+            path.toQueue(),
+            null
+        ));
+
+        return true;
     }
 
-    @Override
-    public void call(Network network, Level level, BlockPos currentPos, TransportCallback cancelCallback) {
-        // TODO: Actually bounce back...
-        Containers.dropItemStack(level, originalItemHandlerPosition.getX(), originalItemHandlerPosition.getY(), originalItemHandlerPosition.getZ(), toInsert);
+    private boolean isOriginalDestination(Destination destination, BlockPos currentPos, ItemTransport transport) {
+        return destination.getReceiver().equals(transport.getDestination()) && destination.getConnectedPipe().getPos().equals(currentPos);
     }
 
-    @Override
-    public ResourceLocation getId() {
-        return ID;
+    private boolean canInsertIntoOrigin(Level level, ItemTransport transport) {
+        BlockEntity blockEntity = level.getBlockEntity(transport.getOrigin());
+        if (blockEntity == null) {
+            return false;
+        }
+
+        IItemHandler itemHandler = blockEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, transport.getOriginDirection().getOpposite()).orElse(null);
+        if (itemHandler == null) {
+            return false;
+        }
+
+        return ItemHandlerHelper.insertItem(itemHandler, transport.getValue(), true).isEmpty();
     }
 
     @Override
-    public CompoundTag writeToNbt(CompoundTag tag) {
-        tag.putLong("oihpos", originalItemHandlerPosition.asLong());
-        tag.putLong("bbihpos", bounceBackItemHandlerPosition.asLong());
-        tag.put("s", toInsert.save(new CompoundTag()));
-
-        return tag;
+    public ResourceLocation getId() {
+        return ID;
     }
 }
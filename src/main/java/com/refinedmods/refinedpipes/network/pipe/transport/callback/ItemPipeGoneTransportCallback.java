@@ -2,52 +2,26 @@ package com.refinedmods.refinedpipes.network.pipe.transport.callback;
 
 import com.refinedmods.refinedpipes.RefinedPipes;
 import com.refinedmods.refinedpipes.network.Network;
+import com.refinedmods.refinedpipes.network.pipe.transport.ItemTransport;
 import net.minecraft.core.BlockPos;
-import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.Containers;
-import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-
-import javax.annotation.Nullable;
 
 public class ItemPipeGoneTransportCallback implements TransportCallback {
     public static final ResourceLocation ID = new ResourceLocation(RefinedPipes.ID, "item_pipe_gone");
-    private static final Logger LOGGER = LogManager.getLogger(ItemPipeGoneTransportCallback.class);
-    private final ItemStack stack;
-
-    public ItemPipeGoneTransportCallback(ItemStack stack) {
-        this.stack = stack;
-    }
-
-    @Nullable
-    public static ItemPipeGoneTransportCallback of(CompoundTag tag) {
-        ItemStack stack = ItemStack.of(tag.getCompound("s"));
-
-        if (stack.isEmpty()) {
-            LOGGER.warn("Item no longer exists");
-            return null;
-        }
+    public static final ItemPipeGoneTransportCallback INSTANCE = new ItemPipeGoneTransportCallback();
 
-        return new ItemPipeGoneTransportCallback(stack);
+    private ItemPipeGoneTransportCallback() {
     }
 
     @Override
-    public void call(Network network, Level level, BlockPos currentPos, TransportCallback cancelCallback) {
-        Containers.dropItemStack(level, currentPos.getX(), currentPos.getY(), currentPos.getZ(), stack);
+    public void call(Network network, Level level, BlockPos currentPos, ItemTransport transport) {
+        Containers.dropItemStack(level, currentPos.getX(), currentPos.getY(), currentPos.getZ(), transport.getValue());
     }
 
     @Override
     public ResourceLocation getId() {
         return ID;
     }
-
-    @Override
-    public CompoundTag writeToNbt(CompoundTag tag) {
-        tag.put("s", stack.save(new CompoundTag()));
-
-        return tag;
-    }
 }
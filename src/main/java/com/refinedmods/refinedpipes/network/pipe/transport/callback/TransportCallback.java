@@ -1,15 +1,13 @@
 package com.refinedmods.refinedpipes.network.pipe.transport.callback;
 
 import com.refinedmods.refinedpipes.network.Network;
+import com.refinedmods.refinedpipes.network.pipe.transport.ItemTransport;
 import net.minecraft.core.BlockPos;
-import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.Level;
 
 public interface TransportCallback {
-    void call(Network network, Level level, BlockPos currentPos, TransportCallback cancelCallback);
+    void call(Network network, Level level, BlockPos currentPos, ItemTransport transport);
 
     ResourceLocation getId();
-
-    CompoundTag writeToNbt(CompoundTag tag);
 }
@@ -0,0 +1,29 @@
+package com.refinedmods.refinedpipes.network.pipe.transport.callback;
+
+import net.minecraft.resources.ResourceLocation;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TransportCallbackRegistry {
+    public static final TransportCallbackRegistry INSTANCE = new TransportCallbackRegistry();
+
+    private final Map<ResourceLocation, TransportCallback> callbacks = new HashMap<>();
+
+    private TransportCallbackRegistry() {
+    }
+
+    public void addCallback(TransportCallback callback) {
+        if (callbacks.containsKey(callback.getId())) {
+            throw new RuntimeException("Cannot register duplicate transport callback " + callback.getId().toString());
+        }
+
+        callbacks.put(callback.getId(), callback);
+    }
+
+    @Nullable
+    public TransportCallback getCallback(ResourceLocation id) {
+        return callbacks.get(id);
+    }
+}
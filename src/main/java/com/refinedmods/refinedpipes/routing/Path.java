@@ -1,6 +1,8 @@
 package com.refinedmods.refinedpipes.routing;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
 
@@ -19,6 +21,13 @@ public class Path<T> {
         return path.size();
     }
 
+    public Path<T> reverse() {
+        List<Node<T>> reversed = new ArrayList<>(path);
+        Collections.reverse(reversed);
+
+        return new Path<>(reversed);
+    }
+
     public Deque<T> toQueue() {
         Deque<T> path = new ArrayDeque<>();
 
@@ -201,6 +201,8 @@ public class ExtractorAttachmentScreen extends BaseScreen<ExtractorAttachmentCon
                 return 42;
             case ROUND_ROBIN:
                 return 63;
+            case BALANCED:
+                return 84;
             default:
                 return 0;
         }
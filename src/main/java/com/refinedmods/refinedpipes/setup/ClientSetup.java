@@ -4,6 +4,7 @@ import com.refinedmods.refinedpipes.RefinedPipes;
 import com.refinedmods.refinedpipes.RefinedPipesBlockEntities;
 import com.refinedmods.refinedpipes.RefinedPipesBlocks;
 import com.refinedmods.refinedpipes.RefinedPipesContainerMenus;
+import com.refinedmods.refinedpipes.blockentity.FluidPipeBlockEntity;
 import com.refinedmods.refinedpipes.network.pipe.attachment.AttachmentFactory;
 import com.refinedmods.refinedpipes.network.pipe.attachment.AttachmentRegistry;
 import com.refinedmods.refinedpipes.network.pipe.energy.EnergyPipeType;
@@ -20,9 +21,12 @@ import net.minecraft.client.renderer.blockentity.BlockEntityRenderers;
 import net.minecraft.client.resources.model.BakedModel;
 import net.minecraft.client.resources.model.ModelResourceLocation;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
 import net.minecraftforge.client.event.ModelBakeEvent;
 import net.minecraftforge.client.event.ModelRegistryEvent;
 import net.minecraftforge.client.model.ForgeModelBakery;
+import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.event.lifecycle.FMLClientSetupEvent;
 import org.apache.logging.log4j.LogManager;
@@ -73,6 +77,16 @@ public final class ClientSetup {
         ForgeModelBakery.addSpecialModel(new ResourceLocation(RefinedPipes.ID + ":block/pipe/attachment/inventory_attachment"));
     }
 
+    public static void onLevelUnload(WorldEvent.Unload e) {
+        if (e.getWorld().isClientSide() && e.getWorld() instanceof Level) {
+            FluidPipeBlockEntity.clearNetworkStates(((Level) e.getWorld()).dimension());
+        }
+    }
+
+    public static void onLoggedOut(ClientPlayerNetworkEvent.LoggedOutEvent e) {
+        FluidPipeBlockEntity.clearNetworkStates();
+    }
+
     @SubscribeEvent
     public static void onClientSetup(FMLClientSetupEvent e) {
         MenuScreens.register(RefinedPipesContainerMenus.EXTRACTOR_ATTACHMENT, ExtractorAttachmentScreen::new);
@@ -13,6 +13,7 @@ import com.refinedmods.refinedpipes.item.AttachmentItem;
 import com.refinedmods.refinedpipes.item.EnergyPipeBlockItem;
 import com.refinedmods.refinedpipes.item.FluidPipeBlockItem;
 import com.refinedmods.refinedpipes.item.ItemPipeBlockItem;
+import com.refinedmods.refinedpipes.network.AsyncSavedData;
 import com.refinedmods.refinedpipes.network.NetworkManager;
 import com.refinedmods.refinedpipes.network.NetworkRegistry;
 import com.refinedmods.refinedpipes.network.energy.EnergyNetworkFactory;
@@ -38,7 +39,7 @@ import com.refinedmods.refinedpipes.network.pipe.shape.PipeShapeFactory;
 import com.refinedmods.refinedpipes.network.pipe.transport.callback.ItemBounceBackTransportCallback;
 import com.refinedmods.refinedpipes.network.pipe.transport.callback.ItemInsertTransportCallback;
 import com.refinedmods.refinedpipes.network.pipe.transport.callback.ItemPipeGoneTransportCallback;
-import com.refinedmods.refinedpipes.network.pipe.transport.callback.TransportCallbackFactoryRegistry;
+import com.refinedmods.refinedpipes.network.pipe.transport.callback.TransportCallbackRegistry;
 import net.minecraft.world.inventory.MenuType;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.level.block.Block;
@@ -46,6 +47,8 @@ import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraftforge.common.extensions.IForgeMenuType;
 import net.minecraftforge.event.RegistryEvent;
 import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerAboutToStartEvent;
+import net.minecraftforge.event.server.ServerStoppingEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.minecraftforge.fml.event.lifecycle.FMLConstructModEvent;
@@ -78,9 +81,9 @@ public final class CommonSetup {
         AttachmentRegistry.INSTANCE.addFactory(ExtractorAttachmentType.ELITE.getId(), new ExtractorAttachmentFactory(ExtractorAttachmentType.ELITE));
         AttachmentRegistry.INSTANCE.addFactory(ExtractorAttachmentType.ULTIMATE.getId(), new ExtractorAttachmentFactory(ExtractorAttachmentType.ULTIMATE));
 
-        TransportCallbackFactoryRegistry.INSTANCE.addFactory(ItemInsertTransportCallback.ID, ItemInsertTransportCallback::of);
-        TransportCallbackFactoryRegistry.INSTANCE.addFactory(ItemBounceBackTransportCallback.ID, ItemBounceBackTransportCallback::of);
-        TransportCallbackFactoryRegistry.INSTANCE.addFactory(ItemPipeGoneTransportCallback.ID, ItemPipeGoneTransportCallback::of);
+        TransportCallbackRegistry.INSTANCE.addCallback(ItemInsertTransportCallback.INSTANCE);
+        TransportCallbackRegistry.INSTANCE.addCallback(ItemBounceBackTransportCallback.INSTANCE);
+        TransportCallbackRegistry.INSTANCE.addCallback(ItemPipeGoneTransportCallback.INSTANCE);
     }
 
     @SubscribeEvent
@@ -154,10 +157,23 @@ public final class CommonSetup {
         e.getRegistry().register(IForgeMenuType.create(new ExtractorAttachmentContainerFactory()).setRegistryName(RefinedPipes.ID, "extractor_attachment"));
     }
 
+    public static void onServerAboutToStart(ServerAboutToStartEvent e) {
+        AsyncSavedData.setSynchronous(false);
+    }
+
+    public static void onServerStopping(ServerStoppingEvent e) {
+        // Make sure the final save is written before the server is gone.
+        AsyncSavedData.setSynchronous(true);
+    }
+
     @SubscribeEvent
     public static void onLevelTick(TickEvent.WorldTickEvent e) {
         if (!e.world.isClientSide && e.phase == TickEvent.Phase.END) {
-            NetworkManager.get(e.world).getNetworks().forEach(n -> n.update(e.world));
+            NetworkManager networkManager = NetworkManager.get(e.world);
+
+            networkManager.updateLoadedPipes();
+            networkManager.updateInitialScans();
+            networkManager.getNetworks().forEach(n -> n.update(e.world));
         }
     }
 }